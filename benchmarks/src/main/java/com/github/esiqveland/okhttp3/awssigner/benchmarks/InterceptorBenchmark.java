@@ -0,0 +1,71 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import com.github.esiqveland.okhttp3.awssigner.AwsSigningInterceptor;
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InterceptorBenchmark measures signing a whole request, from {@link AwsSigningInterceptor#intercept}
+ * to the signed request handed to the chain.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InterceptorBenchmark {
+
+    // bodySize of 0 sends a GET without a body
+    @Param({"0", "1024", "1048576"})
+    public int bodySize;
+
+    @Param({"3", "20"})
+    public int headerCount;
+
+    @Param({"2", "20"})
+    public int queryCount;
+
+    private AwsSigningInterceptor interceptor;
+    private StubChain chain;
+
+    @Setup
+    public void setUp() {
+        interceptor = new AwsSigningInterceptor(Requests.CONFIGURATION);
+        chain = new StubChain(Requests.request(bodySize, headerCount, queryCount));
+    }
+
+    @Benchmark
+    public Request intercept() throws IOException {
+        interceptor.intercept(chain);
+        return chain.proceeded;
+    }
+}
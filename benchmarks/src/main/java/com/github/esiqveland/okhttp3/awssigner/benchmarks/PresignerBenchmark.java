@@ -0,0 +1,88 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import com.github.esiqveland.okhttp3.awssigner.AwsPresigner;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PresignerBenchmark reports presigned URLs per second. The single threaded benchmarks give URLs per second per core.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PresignerBenchmark {
+    private static final int BATCH_SIZE = 10_000;
+    private static final Duration EXPIRES = Duration.ofHours(1);
+
+    private AwsPresigner presigner;
+    private HttpUrl url;
+    private List<HttpUrl> urls;
+    private ForkJoinPool singleThread;
+
+    @Setup
+    public void setUp() {
+        presigner = new AwsPresigner(Requests.CONFIGURATION);
+        url = HttpUrl.parse("https://examplebucket.s3.amazonaws.com/photos/2015/08/30/image.jpg");
+        urls = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            urls.add(HttpUrl.parse("https://examplebucket.s3.amazonaws.com/photos/" + i + ".jpg"));
+        }
+        singleThread = new ForkJoinPool(1);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public HttpUrl presign() throws IOException {
+        return presigner.presign("GET", url, EXPIRES);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<HttpUrl> presignAllOneCore() throws IOException {
+        return presigner.presignAll("GET", urls, EXPIRES, singleThread);
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<HttpUrl> presignAllCommonPool() throws IOException {
+        return presigner.presignAll("GET", urls, EXPIRES);
+    }
+}
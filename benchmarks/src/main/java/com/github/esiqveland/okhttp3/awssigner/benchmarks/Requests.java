@@ -0,0 +1,65 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import com.github.esiqveland.okhttp3.awssigner.AwsConfiguration;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+
+import java.util.Random;
+
+// Requests builds the requests the benchmarks sign, with deterministic content
+final class Requests {
+    static final AwsConfiguration CONFIGURATION = new AwsConfiguration(
+            "AKIDEXAMPLE",
+            "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+            "us-east-1",
+            "s3"
+    );
+
+    private static final MediaType OCTET_STREAM = MediaType.parse("application/octet-stream");
+
+    private Requests() {
+    }
+
+    static HttpUrl url(int queryCount) {
+        HttpUrl.Builder url = new HttpUrl.Builder()
+                .scheme("https")
+                .host("examplebucket.s3.amazonaws.com")
+                .addPathSegments("photos/2015/08/30/holiday image.jpg");
+        for (int i = 0; i < queryCount; i++) {
+            url.addQueryParameter("param-" + (queryCount - i), "value " + i + "/æ");
+        }
+        return url.build();
+    }
+
+    static Request request(int bodySize, int headerCount, int queryCount) {
+        Request.Builder request = new Request.Builder()
+                .url(url(queryCount))
+                .header("Host", "examplebucket.s3.amazonaws.com");
+        for (int i = 0; i < headerCount; i++) {
+            request.addHeader("X-Custom-Header-" + (headerCount - i), "  some   value " + i + " ");
+        }
+        if (bodySize > 0) {
+            byte[] body = new byte[bodySize];
+            new Random(42).nextBytes(body);
+            request.put(RequestBody.create(OCTET_STREAM, body));
+        }
+        return request.build();
+    }
+}
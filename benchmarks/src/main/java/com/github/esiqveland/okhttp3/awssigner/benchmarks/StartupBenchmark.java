@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import com.github.esiqveland.okhttp3.awssigner.AwsConfiguration;
+import com.github.esiqveland.okhttp3.awssigner.AwsSigningInterceptor;
+import okhttp3.Request;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StartupBenchmark measures signing the first request in a fresh JVM, as a short-lived function would,
+ * including loading the classes of the signer and its dependencies.
+ * <p>
+ * Every fork signs one request, and reports how many classes were loaded for it and how large
+ * the jars on the classpath are. JMH sums these counters over all forks, so divide them by the number of forks.
+ * Run it with {@code -prof cl} for class loading times as well.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(10)
+public class StartupBenchmark {
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        private final ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+        private long loadedBefore;
+        private long classpathBytes;
+        // public fields are the counters reported, JMH resets them before the benchmark runs
+        public long classesLoaded;
+        public long classpathKilobytes;
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            loadedBefore = classLoading.getTotalLoadedClassCount();
+            classpathBytes = classpathBytes();
+        }
+
+        void signed() {
+            classesLoaded = classLoading.getTotalLoadedClassCount() - loadedBefore;
+            classpathKilobytes = classpathBytes / 1024;
+        }
+
+        // classpathBytes is the size of the jars the signer loads from, the benchmark jar itself when shaded
+        private static long classpathBytes() {
+            long bytes = 0;
+            for (String entry : System.getProperty("java.class.path").split(File.pathSeparator)) {
+                bytes += new File(entry).length();
+            }
+            return bytes;
+        }
+    }
+
+    @Benchmark
+    public Request firstRequest(Footprint footprint) throws IOException {
+        AwsConfiguration cfg = new AwsConfiguration(
+                "AKIDEXAMPLE",
+                "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                "us-east-1",
+                "s3"
+        );
+        StubChain chain = new StubChain(new Request.Builder()
+                .url("https://examplebucket.s3.amazonaws.com/photos/2015/08/30/image.jpg")
+                .build());
+
+        new AwsSigningInterceptor(cfg).intercept(chain);
+
+        footprint.signed();
+        return chain.proceeded;
+    }
+}
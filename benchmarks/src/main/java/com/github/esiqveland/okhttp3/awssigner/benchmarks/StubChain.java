@@ -0,0 +1,97 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import okhttp3.Call;
+import okhttp3.Connection;
+import okhttp3.Interceptor;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * StubChain is an {@link Interceptor.Chain} that never goes to the network.
+ * It answers every request with the same response, so a benchmark measures the interceptor only.
+ */
+final class StubChain implements Interceptor.Chain {
+    private final Request request;
+    private final Response response;
+    // proceeded is the last request given to proceed, for the benchmark to consume
+    Request proceeded;
+
+    StubChain(Request request) {
+        this.request = request;
+        this.response = new Response.Builder()
+                .request(request)
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .build();
+    }
+
+    @Override
+    public Request request() {
+        return request;
+    }
+
+    @Override
+    public Response proceed(Request request) {
+        this.proceeded = request;
+        return response;
+    }
+
+    @Override
+    public Connection connection() {
+        return null;
+    }
+
+    @Override
+    public Call call() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public int connectTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withConnectTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+
+    @Override
+    public int readTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withReadTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+
+    @Override
+    public int writeTimeoutMillis() {
+        return 0;
+    }
+
+    @Override
+    public Interceptor.Chain withWriteTimeout(int timeout, TimeUnit unit) {
+        return this;
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.benchmarks;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
+import com.github.esiqveland.okhttp3.awssigner.utils.Utils;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ToolsBenchmark measures the building blocks of a signature one at a time.
+ * <p>
+ * The query string and header benchmarks take their sizes from their own states,
+ * so the benchmarks that do not depend on them run once instead of for every size.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ToolsBenchmark {
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        @Param({"0", "5", "50"})
+        public int queryCount;
+
+        HttpUrl url;
+
+        @Setup
+        public void setUp() {
+            url = Requests.url(queryCount);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HeaderState {
+        @Param({"3", "10", "40"})
+        public int headerCount;
+
+        Headers headers;
+
+        @Setup
+        public void setUp() {
+            headers = Requests.request(0, headerCount, 0).headers();
+        }
+    }
+
+    private ZonedDateTime timestamp;
+    private HttpUrl redundantPathUrl;
+    private String canonicalRequest;
+
+    @Setup
+    public void setUp() {
+        timestamp = ZonedDateTime.parse("2015-08-30T12:36:00Z");
+        redundantPathUrl = HttpUrl.parse("https://example.amazonaws.com//photos///2015/08//30/image.jpg");
+        // a typical request: a few query parameters and headers
+        HttpUrl url = Requests.url(5);
+        Headers headers = Requests.request(0, 10, 0).headers();
+        canonicalRequest = "GET\n" +
+                url.encodedPath() + "\n" +
+                Tools.createCanonicalQueryString(url) + "\n" +
+                Tools.createCanonicalHeaderString(headers) + "\n\n" +
+                "host;x-amz-date\n" +
+                "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+    }
+
+    @Benchmark
+    public byte[] getSignatureKey() {
+        return Tools.getSignatureKey(Requests.CONFIGURATION.awsSecretKey, timestamp, "us-east-1", "s3");
+    }
+
+    @Benchmark
+    public String createCanonicalQueryString(QueryState state) {
+        return Tools.createCanonicalQueryString(state.url);
+    }
+
+    @Benchmark
+    public String createCanonicalHeaderString(HeaderState state) {
+        return Tools.createCanonicalHeaderString(state.headers);
+    }
+
+    @Benchmark
+    public String getCanonicalPath() {
+        return Tools.getCanonicalPath(redundantPathUrl);
+    }
+
+    @Benchmark
+    public String hexHash() {
+        return Utils.hexHash(canonicalRequest);
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+import java.io.IOException;
+
+/**
+ * AwsChunkedRequestBody sends a body in aws-chunked encoding, where every chunk carries a signature
+ * chained from the signature of the request itself.
+ * <p>
+ * Wrap the body of a request with this class, and {@link AwsSigningInterceptor} signs the request with
+ * STREAMING-AWS4-HMAC-SHA256-PAYLOAD instead of hashing the payload up front. Chunks are hashed and
+ * signed while they are written to the network, so only one chunk is held in memory at a time.
+ * <p>
+ * S3 needs to know the decoded length of the payload, so the wrapped body should have a known length.
+ * Bodies of unknown length are sent without {@code x-amz-decoded-content-length}.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+ */
+public class AwsChunkedRequestBody extends RequestBody {
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    // S3 rejects chunks smaller than 8 KiB, except for the last one
+    public static final int MIN_CHUNK_SIZE = 8 * 1024;
+
+    // length of ";chunk-signature=" + signature + "\r\n", not counting the hex encoded size
+    private static final int CHUNK_HEADER_LENGTH = 17 + 64 + 2;
+    private static final int CRLF_LENGTH = 2;
+
+    private final RequestBody delegate;
+    private final int chunkSize;
+    private final ChunkSigner signer;
+
+    public AwsChunkedRequestBody(RequestBody delegate) {
+        this(delegate, DEFAULT_CHUNK_SIZE);
+    }
+
+    public AwsChunkedRequestBody(RequestBody delegate, int chunkSize) {
+        this(delegate, chunkSize, null);
+        if (chunkSize < MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be at least " + MIN_CHUNK_SIZE + ": " + chunkSize);
+        }
+    }
+
+    private AwsChunkedRequestBody(RequestBody delegate, int chunkSize, ChunkSigner signer) {
+        this.delegate = delegate;
+        this.chunkSize = chunkSize;
+        this.signer = signer;
+    }
+
+    // withSigner returns a copy of this body that signs chunks with the given signer
+    AwsChunkedRequestBody withSigner(ChunkSigner signer) {
+        return new AwsChunkedRequestBody(delegate, chunkSize, signer);
+    }
+
+    /**
+     * @return the length of the wrapped body, or -1 if it is not known
+     * @throws IOException if the wrapped body fails to report its length
+     */
+    public long decodedContentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long decodedLength = delegate.contentLength();
+        if (decodedLength == -1) {
+            return -1;
+        }
+        long fullChunks = decodedLength / chunkSize;
+        long remainder = decodedLength % chunkSize;
+        long length = fullChunks * encodedChunkLength(chunkSize);
+        if (remainder > 0) {
+            length += encodedChunkLength(remainder);
+        }
+        return length + encodedChunkLength(0);
+    }
+
+    private static long encodedChunkLength(long dataLength) {
+        return Long.toHexString(dataLength).length() + CHUNK_HEADER_LENGTH + dataLength + CRLF_LENGTH;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (signer == null) {
+            throw new IllegalStateException("AwsChunkedRequestBody must be signed by AwsSigningInterceptor before it is written");
+        }
+        ChunkingSink chunkingSink = new ChunkingSink(sink, signer.copy(), chunkSize);
+        BufferedSink bufferedSink = Okio.buffer(chunkingSink);
+        delegate.writeTo(bufferedSink);
+        bufferedSink.emit();
+        chunkingSink.finish();
+    }
+
+    // ChunkingSink cuts everything written to it into chunks of chunkSize and writes them framed and signed to out.
+    private static class ChunkingSink implements Sink {
+        private final BufferedSink out;
+        private final ChunkSigner signer;
+        private final int chunkSize;
+        private final Buffer chunk = new Buffer();
+
+        ChunkingSink(BufferedSink out, ChunkSigner signer, int chunkSize) {
+            this.out = out;
+            this.signer = signer;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                long toCopy = Math.min(byteCount, chunkSize - chunk.size());
+                chunk.write(source, toCopy);
+                byteCount -= toCopy;
+                if (chunk.size() == chunkSize) {
+                    writeChunk();
+                }
+            }
+        }
+
+        // finish writes the last partial chunk, if any, and the final empty chunk
+        void finish() throws IOException {
+            if (chunk.size() > 0) {
+                writeChunk();
+            }
+            writeChunk();
+            out.flush();
+        }
+
+        private void writeChunk() throws IOException {
+            long size = chunk.size();
+            String signature = signer.sign(chunk.sha256().hex());
+            out.writeUtf8(Long.toHexString(size))
+                    .writeUtf8(";chunk-signature=")
+                    .writeUtf8(signature)
+                    .writeUtf8("\r\n");
+            out.write(chunk, size);
+            out.writeUtf8("\r\n");
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // chunks have a fixed size, so a partial chunk is never flushed early
+            out.flush();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return out.timeout();
+        }
+
+        @Override
+        public void close() {
+            // the caller owns out
+        }
+    }
+}
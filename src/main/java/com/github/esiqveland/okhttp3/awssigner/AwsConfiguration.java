@@ -16,17 +16,285 @@
 
 package com.github.esiqveland.okhttp3.awssigner;
 
+import com.github.esiqveland.okhttp3.awssigner.credentials.AwsCredentials;
+import com.github.esiqveland.okhttp3.awssigner.credentials.AwsCredentialsProvider;
+
+import java.io.File;
+import java.io.IOException;
+
 public class AwsConfiguration {
     public final String awsAccessKey;
     public final String awsSecretKey;
     public final String awsRegion;
     public final String awsServiceName;
+    public final PayloadSigningMode payloadSigningMode;
+    // unsignedPayloadThreshold is the body size in bytes above which UNSIGNED_ABOVE_THRESHOLD skips hashing
+    public final long unsignedPayloadThreshold;
+    // trustContentSha256Header uses an x-amz-content-sha256 header set by the caller as the payload hash
+    public final boolean trustContentSha256Header;
+    // credentialsProvider supplies the credentials for each request.
+    // When not set, it returns the static awsAccessKey and awsSecretKey.
+    public final AwsCredentialsProvider credentialsProvider;
+    private final boolean customCredentialsProvider;
+    private final boolean customRegionSet;
+    // signingListener is told how long signing takes, by default nothing is measured
+    public final SigningListener signingListener;
+    // correctClockSkew corrects the signing time from the server's Date when a request is rejected for its time
+    public final boolean correctClockSkew;
+    // signatureCacheSize is how many signatures of identical requests are kept within one second, 0 to disable
+    public final int signatureCacheSize;
+    // canonicalUrlCacheSize is how many canonical paths and query strings of urls are kept, 0 to disable
+    public final int canonicalUrlCacheSize;
+    // doubleUrlEncode signs the path URI-encoded twice, as every service except S3 expects
+    public final boolean doubleUrlEncode;
+    // warmUpRequests is how many synthetic requests a new interceptor signs before it is used, 0 to not warm up
+    public final int warmUpRequests;
+    // payloadSpillThreshold is how many bytes of a body of unknown length are copied in memory before spilling to a file
+    public final long payloadSpillThreshold;
+    // payloadSpillDirectory is where bodies are spilled, null for the default temporary directory
+    public final File payloadSpillDirectory;
+    // signingAlgorithm is SIGV4 unless SIGV4A is asked for
+    public final SigningAlgorithm signingAlgorithm;
+    // regionSet is the comma separated regions a SIGV4A signature is valid for, awsRegion when not set
+    public final String regionSet;
 
     public AwsConfiguration(String awsAccessKey, String awsSecretKey, String awsRegion, String awsServiceName) {
-        this.awsAccessKey = awsAccessKey;
-        this.awsSecretKey = awsSecretKey;
-        this.awsRegion = awsRegion;
-        this.awsServiceName = awsServiceName;
+        this(builder()
+                .awsAccessKey(awsAccessKey)
+                .awsSecretKey(awsSecretKey)
+                .awsRegion(awsRegion)
+                .awsServiceName(awsServiceName)
+        );
+    }
+
+    private AwsConfiguration(Builder builder) {
+        this.awsAccessKey = builder.awsAccessKey;
+        this.awsSecretKey = builder.awsSecretKey;
+        this.awsRegion = builder.awsRegion;
+        this.awsServiceName = builder.awsServiceName;
+        this.payloadSigningMode = builder.payloadSigningMode;
+        this.unsignedPayloadThreshold = builder.unsignedPayloadThreshold;
+        this.trustContentSha256Header = builder.trustContentSha256Header;
+        this.signingListener = builder.signingListener;
+        this.correctClockSkew = builder.correctClockSkew;
+        this.signatureCacheSize = builder.signatureCacheSize;
+        this.canonicalUrlCacheSize = builder.canonicalUrlCacheSize;
+        this.doubleUrlEncode = builder.doubleUrlEncode;
+        this.warmUpRequests = builder.warmUpRequests;
+        this.payloadSpillThreshold = builder.payloadSpillThreshold;
+        this.payloadSpillDirectory = builder.payloadSpillDirectory;
+        this.signingAlgorithm = builder.signingAlgorithm;
+        this.regionSet = builder.regionSet != null ? builder.regionSet : builder.awsRegion;
+        this.customRegionSet = builder.regionSet != null;
+        this.customCredentialsProvider = builder.credentialsProvider != null;
+        this.credentialsProvider = customCredentialsProvider
+                ? builder.credentialsProvider
+                : staticCredentials(builder.awsAccessKey, builder.awsSecretKey);
+    }
+
+    // staticCredentials fails requests with an IOException when no keys are set, since interceptors of
+    // enqueued calls only hand IOExceptions to the Callback.
+    private static AwsCredentialsProvider staticCredentials(String awsAccessKey, String awsSecretKey) {
+        if (awsAccessKey == null || awsAccessKey.isEmpty() || awsSecretKey == null || awsSecretKey.isEmpty()) {
+            return () -> {
+                throw new IOException("no credentials configured: set awsAccessKey and awsSecretKey, or a credentialsProvider");
+            };
+        }
+        return AwsCredentialsProvider.of(new AwsCredentials(awsAccessKey, awsSecretKey));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
+    public static class Builder {
+        private String awsAccessKey;
+        private String awsSecretKey;
+        private String awsRegion;
+        private String awsServiceName;
+        private PayloadSigningMode payloadSigningMode = PayloadSigningMode.SIGNED;
+        private long unsignedPayloadThreshold = 1024 * 1024;
+        private boolean trustContentSha256Header = false;
+        private AwsCredentialsProvider credentialsProvider;
+        private SigningListener signingListener = SigningListener.NOOP;
+        private boolean correctClockSkew = false;
+        private int signatureCacheSize = 0;
+        private int canonicalUrlCacheSize = 0;
+        private boolean doubleUrlEncode = false;
+        private int warmUpRequests = 0;
+        private long payloadSpillThreshold = Long.MAX_VALUE;
+        private File payloadSpillDirectory;
+        private SigningAlgorithm signingAlgorithm = SigningAlgorithm.SIGV4;
+        private String regionSet;
+
+        private Builder() {
+        }
+
+        private Builder(AwsConfiguration cfg) {
+            this.awsAccessKey = cfg.awsAccessKey;
+            this.awsSecretKey = cfg.awsSecretKey;
+            this.awsRegion = cfg.awsRegion;
+            this.awsServiceName = cfg.awsServiceName;
+            this.payloadSigningMode = cfg.payloadSigningMode;
+            this.unsignedPayloadThreshold = cfg.unsignedPayloadThreshold;
+            this.trustContentSha256Header = cfg.trustContentSha256Header;
+            // keep a static provider derived from the keys out, so that changing the keys takes effect
+            this.credentialsProvider = cfg.customCredentialsProvider ? cfg.credentialsProvider : null;
+            this.signingListener = cfg.signingListener;
+            this.correctClockSkew = cfg.correctClockSkew;
+            this.signatureCacheSize = cfg.signatureCacheSize;
+            this.canonicalUrlCacheSize = cfg.canonicalUrlCacheSize;
+            this.doubleUrlEncode = cfg.doubleUrlEncode;
+            this.warmUpRequests = cfg.warmUpRequests;
+            this.payloadSpillThreshold = cfg.payloadSpillThreshold;
+            this.payloadSpillDirectory = cfg.payloadSpillDirectory;
+            this.signingAlgorithm = cfg.signingAlgorithm;
+            // like the credentials, a region set defaulted from awsRegion follows changes to awsRegion
+            this.regionSet = cfg.customRegionSet ? cfg.regionSet : null;
+        }
+
+        public Builder awsAccessKey(String awsAccessKey) {
+            this.awsAccessKey = awsAccessKey;
+            return this;
+        }
+
+        public Builder awsSecretKey(String awsSecretKey) {
+            this.awsSecretKey = awsSecretKey;
+            return this;
+        }
+
+        public Builder awsRegion(String awsRegion) {
+            this.awsRegion = awsRegion;
+            return this;
+        }
+
+        public Builder awsServiceName(String awsServiceName) {
+            this.awsServiceName = awsServiceName;
+            return this;
+        }
+
+        public Builder payloadSigningMode(PayloadSigningMode payloadSigningMode) {
+            if (payloadSigningMode == null) {
+                throw new IllegalArgumentException("payloadSigningMode must not be null");
+            }
+            this.payloadSigningMode = payloadSigningMode;
+            return this;
+        }
+
+        public Builder unsignedPayloadThreshold(long unsignedPayloadThreshold) {
+            if (unsignedPayloadThreshold < 0) {
+                throw new IllegalArgumentException("unsignedPayloadThreshold must not be negative: " + unsignedPayloadThreshold);
+            }
+            this.unsignedPayloadThreshold = unsignedPayloadThreshold;
+            return this;
+        }
+
+        // trustContentSha256Header makes the interceptor sign with the x-amz-content-sha256 header of a request,
+        // when it has one, instead of hashing the body. The header is not checked against the body.
+        public Builder trustContentSha256Header(boolean trustContentSha256Header) {
+            this.trustContentSha256Header = trustContentSha256Header;
+            return this;
+        }
+
+        public Builder credentialsProvider(AwsCredentialsProvider credentialsProvider) {
+            this.credentialsProvider = credentialsProvider;
+            return this;
+        }
+
+        public Builder signingListener(SigningListener signingListener) {
+            if (signingListener == null) {
+                throw new IllegalArgumentException("signingListener must not be null, use SigningListener.NOOP");
+            }
+            this.signingListener = signingListener;
+            return this;
+        }
+
+        // correctClockSkew makes the interceptor set the offset of its clock from the Date of a response rejecting
+        // a request for being signed at the wrong time, and sign and send the request once more.
+        // The request is only sent again when the interceptor is added with addInterceptor, not addNetworkInterceptor,
+        // and when its body is known to write the same bytes twice. Off by default.
+        public Builder correctClockSkew(boolean correctClockSkew) {
+            this.correctClockSkew = correctClockSkew;
+            return this;
+        }
+
+        // signatureCacheSize keeps the Authorization header of up to this many distinct requests signed in the
+        // current second, for clients sending the same request many times a second. The cache is emptied
+        // whenever the second or the credentials change. 0, the default, disables it.
+        public Builder signatureCacheSize(int signatureCacheSize) {
+            if (signatureCacheSize < 0) {
+                throw new IllegalArgumentException("signatureCacheSize must not be negative: " + signatureCacheSize);
+            }
+            this.signatureCacheSize = signatureCacheSize;
+            return this;
+        }
+
+        // canonicalUrlCacheSize keeps the canonical path and query string of up to this many urls,
+        // for clients calling a fixed set of endpoints. 0, the default, disables it.
+        public Builder canonicalUrlCacheSize(int canonicalUrlCacheSize) {
+            if (canonicalUrlCacheSize < 0) {
+                throw new IllegalArgumentException("canonicalUrlCacheSize must not be negative: " + canonicalUrlCacheSize);
+            }
+            this.canonicalUrlCacheSize = canonicalUrlCacheSize;
+            return this;
+        }
+
+        // doubleUrlEncode URI-encodes the already encoded path once more when signing, which all services
+        // except S3 expect for paths with characters that need encoding. It is off by default.
+        public Builder doubleUrlEncode(boolean doubleUrlEncode) {
+            this.doubleUrlEncode = doubleUrlEncode;
+            return this;
+        }
+
+        // warmUpRequests makes every AwsSigningInterceptor built with this configuration call
+        // AwsSigningInterceptor.warmUp with this many requests from its constructor. 0, the default, skips it.
+        public Builder warmUpRequests(int warmUpRequests) {
+            if (warmUpRequests < 0) {
+                throw new IllegalArgumentException("warmUpRequests must not be negative: " + warmUpRequests);
+            }
+            this.warmUpRequests = warmUpRequests;
+            return this;
+        }
+
+        // payloadSpillThreshold bounds the memory used for bodies of unknown length, which may only be writable once.
+        // With SIGNED payloads such a body is copied while it is hashed and sent from the copy; beyond this
+        // many bytes the copy goes to a temporary file, deleted when the request is done. By default it stays in memory.
+        public Builder payloadSpillThreshold(long payloadSpillThreshold) {
+            if (payloadSpillThreshold < 0) {
+                throw new IllegalArgumentException("payloadSpillThreshold must not be negative: " + payloadSpillThreshold);
+            }
+            this.payloadSpillThreshold = payloadSpillThreshold;
+            return this;
+        }
+
+        // payloadSpillDirectory is where bodies above payloadSpillThreshold are spilled, java.io.tmpdir when not set
+        public Builder payloadSpillDirectory(File payloadSpillDirectory) {
+            this.payloadSpillDirectory = payloadSpillDirectory;
+            return this;
+        }
+
+        public Builder signingAlgorithm(SigningAlgorithm signingAlgorithm) {
+            if (signingAlgorithm == null) {
+                throw new IllegalArgumentException("signingAlgorithm must not be null");
+            }
+            this.signingAlgorithm = signingAlgorithm;
+            return this;
+        }
+
+        // regionSet sets the regions a SIGV4A signature is valid for, for example "us-east-1,us-west-2" or "*".
+        // It is ignored for SIGV4.
+        public Builder regionSet(String regionSet) {
+            this.regionSet = regionSet;
+            return this;
+        }
+
+        public AwsConfiguration build() {
+            return new AwsConfiguration(this);
+        }
     }
 
 }
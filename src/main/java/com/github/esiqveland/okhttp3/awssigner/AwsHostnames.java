@@ -0,0 +1,128 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AwsHostnames finds the region and the service to sign for from the hostname of an AWS endpoint,
+ * such as sqs.eu-west-1.amazonaws.com, bucket.s3.us-west-2.amazonaws.com or iam.amazonaws.com.
+ * <p>
+ * The endpoint prefix is used as the signing name, except for the few services where they are known to differ.
+ * Most services come before the region, but a few, such as OpenSearch domains (search-domain.us-east-1.es.amazonaws.com),
+ * come after it.
+ * Global endpoints without a region sign for us-east-1, or cn-north-1 in China.
+ */
+final class AwsHostnames {
+    private static final String SUFFIX = ".amazonaws.com";
+    private static final String CHINA_SUFFIX = ".amazonaws.com.cn";
+    private static final Map<String, String> SIGNING_NAMES = new HashMap<>();
+    // SERVICES_AFTER_REGION are the services whose label follows the region, with customer names before it
+    private static final Set<String> SERVICES_AFTER_REGION = new HashSet<>(Arrays.asList("es", "aoss"));
+
+    static {
+        SIGNING_NAMES.put("email", "ses");
+        SIGNING_NAMES.put("s3-accesspoint", "s3");
+        SIGNING_NAMES.put("s3-external-1", "s3");
+    }
+
+    private AwsHostnames() {
+    }
+
+    // parse returns the route of host, or null if it is not an AWS endpoint
+    static RoutingSigningInterceptor.Route parse(String host) {
+        String globalRegion;
+        String name;
+        if (host.endsWith(SUFFIX)) {
+            globalRegion = "us-east-1";
+            name = host.substring(0, host.length() - SUFFIX.length());
+        } else if (host.endsWith(CHINA_SUFFIX)) {
+            globalRegion = "cn-north-1";
+            name = host.substring(0, host.length() - CHINA_SUFFIX.length());
+        } else {
+            return null;
+        }
+        if (name.isEmpty()) {
+            return null;
+        }
+
+        String[] labels = name.split("\\.");
+        for (int i = labels.length - 1; i >= 0; i--) {
+            String label = labels[i];
+            if (isRegion(label)) {
+                if (i + 1 < labels.length && SERVICES_AFTER_REGION.contains(labels[i + 1])) {
+                    return new RoutingSigningInterceptor.Route(label, labels[i + 1]);
+                }
+                if (i == 0) {
+                    // a bucket or other name that looks like a region, with no service in front of it
+                    continue;
+                }
+                String service = labels[i - 1];
+                if ("dualstack".equals(service) && i >= 2) {
+                    service = labels[i - 2];
+                }
+                return new RoutingSigningInterceptor.Route(label, signingName(service));
+            }
+            if (label.startsWith("s3-") && isRegion(label.substring(3))) {
+                // legacy S3 endpoints, such as s3-eu-west-1.amazonaws.com
+                return new RoutingSigningInterceptor.Route(label.substring(3), "s3");
+            }
+        }
+        return new RoutingSigningInterceptor.Route(globalRegion, signingName(labels[labels.length - 1]));
+    }
+
+    private static String signingName(String endpointPrefix) {
+        if (endpointPrefix.endsWith("-fips")) {
+            endpointPrefix = endpointPrefix.substring(0, endpointPrefix.length() - "-fips".length());
+        }
+        return SIGNING_NAMES.getOrDefault(endpointPrefix, endpointPrefix);
+    }
+
+    // isRegion matches region names such as us-east-1, eu-central-2, us-gov-west-1 or ap-southeast-4
+    static boolean isRegion(String label) {
+        int length = label.length();
+        if (length < 6 || label.charAt(2) != '-') {
+            return false;
+        }
+        if (!isLetter(label.charAt(0)) || !isLetter(label.charAt(1))) {
+            return false;
+        }
+        int lastDash = label.lastIndexOf('-');
+        if (lastDash == 2 || lastDash == length - 1) {
+            return false;
+        }
+        for (int i = lastDash + 1; i < length; i++) {
+            if (label.charAt(i) < '0' || label.charAt(i) > '9') {
+                return false;
+            }
+        }
+        for (int i = 3; i < lastDash; i++) {
+            char c = label.charAt(i);
+            if (!isLetter(c) && c != '-') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+}
@@ -0,0 +1,236 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.credentials.AwsCredentials;
+import com.github.esiqveland.okhttp3.awssigner.utils.CanonicalPath;
+import com.github.esiqveland.okhttp3.awssigner.utils.CanonicalQueryString;
+import com.github.esiqveland.okhttp3.awssigner.utils.JCloudTools;
+import com.github.esiqveland.okhttp3.awssigner.utils.Sha256Writer;
+import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
+import okhttp3.HttpUrl;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+
+/**
+ * AwsPresigner creates presigned URLs, where the signature is carried in the query string
+ * instead of the Authorization header, so the URL can be handed to someone without credentials.
+ * <p>
+ * Only the host header is signed. S3 URLs are signed with UNSIGNED-PAYLOAD, other services with the hash of an empty payload.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-query-string-auth.html
+ */
+public class AwsPresigner {
+    // MAX_EXPIRES is the longest a presigned URL can be valid: 7 days
+    public static final Duration MAX_EXPIRES = Duration.ofDays(7);
+    // BATCH_SPLIT_SIZE is the batch size above which presignAll splits the work across the fork-join pool
+    static final int BATCH_SPLIT_SIZE = 512;
+
+    private final AwsConfiguration cfg;
+    private final SigningClock clock;
+    private final SigningKeyCache signingKeys;
+    private final String payloadHash;
+
+    public AwsPresigner(AwsConfiguration cfg, Supplier<ZonedDateTime> clock) {
+        this(cfg, SigningClock.of(clock));
+    }
+
+    public AwsPresigner(AwsConfiguration cfg) {
+        this(cfg, SigningClock.system());
+    }
+
+    AwsPresigner(AwsConfiguration cfg, SigningClock clock) {
+        this.cfg = cfg;
+        this.clock = clock;
+        this.signingKeys = new SigningKeyCache(cfg.awsRegion, cfg.awsServiceName, cfg.signingListener);
+        this.payloadHash = "s3".equals(cfg.awsServiceName)
+                ? AwsSigningInterceptor.UNSIGNED_PAYLOAD
+                : JCloudTools.getEmptyPayloadContentHash();
+    }
+
+    /**
+     * presign signs a single URL.
+     *
+     * @param method    the HTTP method the URL will be used with
+     * @param url       the URL to sign
+     * @param expiresIn how long the URL is valid, at most {@link #MAX_EXPIRES}
+     */
+    public HttpUrl presign(String method, HttpUrl url, Duration expiresIn) throws IOException {
+        return newBatch(method, expiresIn).sign(url);
+    }
+
+    /**
+     * presignAll signs many URLs with the same method and expiry. The URLs share one timestamp,
+     * one signing key and one set of X-Amz-* parameters, and large batches are signed in
+     * parallel on the common fork-join pool.
+     *
+     * @return the signed URLs, in the same order as urls
+     */
+    public List<HttpUrl> presignAll(String method, List<HttpUrl> urls, Duration expiresIn) throws IOException {
+        return presignAll(method, urls, expiresIn, ForkJoinPool.commonPool());
+    }
+
+    public List<HttpUrl> presignAll(String method, List<HttpUrl> urls, Duration expiresIn, ForkJoinPool pool) throws IOException {
+        Batch batch = newBatch(method, expiresIn);
+        HttpUrl[] signed = new HttpUrl[urls.size()];
+        if (urls.size() <= BATCH_SPLIT_SIZE) {
+            batch.signRange(urls, signed, 0, signed.length);
+        } else {
+            pool.invoke(new BatchTask(batch, urls, signed, 0, signed.length));
+        }
+        return Arrays.asList(signed);
+    }
+
+    private Batch newBatch(String method, Duration expiresIn) throws IOException {
+        if (method == null || method.isEmpty()) {
+            throw new IllegalArgumentException("method must not be empty");
+        }
+        if (expiresIn == null || expiresIn.getSeconds() < 1 || expiresIn.compareTo(MAX_EXPIRES) > 0) {
+            throw new IllegalArgumentException("expiresIn must be between 1 second and " + MAX_EXPIRES + ": " + expiresIn);
+        }
+        SigningTime time = clock.now();
+        AwsCredentials credentials = cfg.credentialsProvider.getCredentials();
+        SigningContext signingContext = signingKeys.get(credentials.accessKeyId, credentials.secretAccessKey, time);
+        return new Batch(method, time, signingContext, credentials.sessionToken, expiresIn.getSeconds(), payloadHash, cfg.doubleUrlEncode);
+    }
+
+    // Batch holds everything that is the same for all URLs signed together
+    private static final class Batch {
+        private final String method;
+        private final SigningTime time;
+        private final SigningContext signingContext;
+        private final String payloadHash;
+        private final boolean doubleUrlEncode;
+        // parameters are the X-Amz-* query parameters, as alternating names and values
+        private final String[] parameters;
+        // canonicalQuery is the canonical query string of a URL without query parameters of its own
+        private final String canonicalQuery;
+
+        Batch(
+                String method,
+                SigningTime time,
+                SigningContext signingContext,
+                String sessionToken,
+                long expiresSeconds,
+                String payloadHash,
+                boolean doubleUrlEncode
+        ) {
+            this.method = method;
+            this.time = time;
+            this.signingContext = signingContext;
+            this.payloadHash = payloadHash;
+            this.doubleUrlEncode = doubleUrlEncode;
+
+            List<String> parameters = new ArrayList<>(12);
+            parameters.add("X-Amz-Algorithm");
+            parameters.add("AWS4-HMAC-SHA256");
+            parameters.add("X-Amz-Credential");
+            parameters.add(signingContext.accessKey + '/' + signingContext.credentialScope);
+            parameters.add("X-Amz-Date");
+            parameters.add(time.amzDate);
+            parameters.add("X-Amz-Expires");
+            parameters.add(Long.toString(expiresSeconds));
+            if (sessionToken != null) {
+                parameters.add("X-Amz-Security-Token");
+                parameters.add(sessionToken);
+            }
+            parameters.add("X-Amz-SignedHeaders");
+            parameters.add("host");
+            this.parameters = parameters.toArray(new String[0]);
+            this.canonicalQuery = CanonicalQueryString.of(HttpUrl.parse("http://localhost/"), this.parameters);
+        }
+
+        HttpUrl sign(HttpUrl url) {
+            String canonicalQuery = url.querySize() == 0
+                    ? this.canonicalQuery
+                    : CanonicalQueryString.of(url, parameters);
+
+            // CanonicalRequest =
+            //        HTTPRequestMethod + '\n' +
+            //                CanonicalURI + '\n' +
+            //                CanonicalQueryString + '\n' +
+            //                "host:" + Host + '\n' + '\n' +
+            //                "host" + '\n' +
+            //                PayloadHash
+            Sha256Writer canonicalRequest = new Sha256Writer(false)
+                    .append(method).append('\n')
+                    .append(CanonicalPath.of(url, doubleUrlEncode)).append('\n')
+                    .append(canonicalQuery).append('\n')
+                    .append("host:").append(url.host());
+            if (url.port() != HttpUrl.defaultPort(url.scheme())) {
+                canonicalRequest.append(':').append(Integer.toString(url.port()));
+            }
+            canonicalRequest.append('\n').append('\n')
+                    .append("host").append('\n')
+                    .append(payloadHash);
+
+            String stringToSign = AwsSigningInterceptor.createStringToSign(
+                    time,
+                    signingContext.credentialScope,
+                    canonicalRequest.hexDigest()
+            );
+            String signature = Tools.createSignature(signingContext.signingMac, stringToSign);
+
+            // the canonical query is already encoded the way AWS expects, so it is used as the query as is
+            return url.newBuilder()
+                    .encodedQuery(canonicalQuery + "&X-Amz-Signature=" + signature)
+                    .build();
+        }
+
+        void signRange(List<HttpUrl> urls, HttpUrl[] signed, int from, int to) {
+            for (int i = from; i < to; i++) {
+                signed[i] = sign(urls.get(i));
+            }
+        }
+    }
+
+    private static final class BatchTask extends RecursiveAction {
+        private final Batch batch;
+        private final List<HttpUrl> urls;
+        private final HttpUrl[] signed;
+        private final int from;
+        private final int to;
+
+        BatchTask(Batch batch, List<HttpUrl> urls, HttpUrl[] signed, int from, int to) {
+            this.batch = batch;
+            this.urls = urls;
+            this.signed = signed;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= BATCH_SPLIT_SIZE) {
+                batch.signRange(urls, signed, from, to);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(
+                    new BatchTask(batch, urls, signed, from, middle),
+                    new BatchTask(batch, urls, signed, middle, to)
+            );
+        }
+    }
+}
@@ -16,99 +16,408 @@
 
 package com.github.esiqveland.okhttp3.awssigner;
 
-import com.github.esiqveland.okhttp3.awssigner.utils.JCloudTools;
+import com.github.esiqveland.okhttp3.awssigner.CanonicalUrlCache.CanonicalUrl;
+import com.github.esiqveland.okhttp3.awssigner.credentials.AwsCredentials;
+import com.github.esiqveland.okhttp3.awssigner.utils.BoundedCache;
+import com.github.esiqveland.okhttp3.awssigner.utils.CanonicalHeaders;
+import com.github.esiqveland.okhttp3.awssigner.utils.PayloadHasher;
+import com.github.esiqveland.okhttp3.awssigner.utils.Sha256Writer;
 import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
-import com.github.esiqveland.okhttp3.awssigner.utils.Utils;
-import com.google.common.annotations.VisibleForTesting;
-import com.google.common.base.Joiner;
-import com.google.common.collect.Lists;
 import okhttp3.HttpUrl;
 import okhttp3.Interceptor;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okio.Buffer;
 
 import java.io.IOException;
-import java.time.ZoneId;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
-import java.util.List;
-import java.util.Map;
+import java.util.Date;
 import java.util.function.Supplier;
 
 public class AwsSigningInterceptor implements Interceptor {
     private static final String AMZ_ALGORITHM_HMAC_SHA256 = "AWS4-HMAC-SHA256";
     private static final String AUTHORIZATION_HEADER = "Authorization";
+    private static final String CONTENT_SHA256_HEADER = "x-amz-content-sha256";
+    private static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    private static final String DECODED_CONTENT_LENGTH_HEADER = "x-amz-decoded-content-length";
+    private static final String TRAILER_HEADER = "x-amz-trailer";
+    private static final String REGION_SET_HEADER = "X-Amz-Region-Set";
+    private static final String SECURITY_TOKEN_HEADER = "X-Amz-Security-Token";
+    // CLOCK_SKEW_TOLERANCE_SECONDS is how far off from the server the signing time must be before it is corrected.
+    // AWS accepts signatures up to 15 minutes off, so rejected requests from a good clock are well within this.
+    static final long CLOCK_SKEW_TOLERANCE_SECONDS = 4 * 60;
+    private static final long ERROR_PEEK_BYTES = 4096;
+    private static final String[] CLOCK_SKEW_ERRORS = {
+            "RequestTimeTooSkewed",
+            "RequestExpired",
+            "RequestInTheFuture",
+            "InvalidSignatureException",
+            "SignatureDoesNotMatch",
+    };
+    private static final HttpUrl WARM_UP_URL = HttpUrl.parse("https://warm-up.amazonaws.com/?warm-up=true");
+    private static final int WARM_UP_PAYLOAD_SIZE = 1024;
+    static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+    static final String STREAMING_PAYLOAD = "STREAMING-AWS4-HMAC-SHA256-PAYLOAD";
+    static final String STREAMING_UNSIGNED_PAYLOAD_TRAILER = "STREAMING-UNSIGNED-PAYLOAD-TRAILER";
 
     private final AwsConfiguration cfg;
-    private final Supplier<ZonedDateTime> clock;
-    private final DateTimeFormatter timestampFormat;
-    private final DateTimeFormatter dateFormat;
-
+    private final SigningClock clock;
+    private final SigningKeyCache signingKeys;
+    // sigV4aKeys is only set when signing with SIGV4A
+    private final SigV4aKeyCache sigV4aKeys;
+    // signatures is only set when signatureCacheSize is configured
+    private final SignatureCache signatures;
+    // canonicalUrls is only set when canonicalUrlCacheSize is configured
+    private final CanonicalUrlCache canonicalUrls;
+    private final SigningListener listener;
+    // measure is false for the NOOP listener, to skip reading the clock
+    private final boolean measure;
 
     public AwsSigningInterceptor(AwsConfiguration cfg, Supplier<ZonedDateTime> clock) {
+        this(cfg, SigningClock.of(clock));
+    }
+
+    public AwsSigningInterceptor(AwsConfiguration cfg) {
+        this(cfg, SigningClock.system());
+    }
+
+    AwsSigningInterceptor(AwsConfiguration cfg, SigningClock clock) {
         this.cfg = cfg;
         this.clock = clock;
-        this.timestampFormat = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
-                .withZone(ZoneId.of("GMT"));
-        this.dateFormat = DateTimeFormatter.ofPattern("yyyyMMdd")
-                .withZone(ZoneId.of("GMT"));
+        this.listener = cfg.signingListener;
+        this.measure = listener != SigningListener.NOOP;
+        this.signingKeys = new SigningKeyCache(cfg.awsRegion, cfg.awsServiceName, listener);
+        this.sigV4aKeys = cfg.signingAlgorithm == SigningAlgorithm.SIGV4A
+                ? new SigV4aKeyCache(cfg.awsServiceName, listener)
+                : null;
+        this.signatures = cfg.signatureCacheSize > 0 ? new SignatureCache(cfg.signatureCacheSize) : null;
+        this.canonicalUrls = cfg.canonicalUrlCacheSize > 0
+                ? new CanonicalUrlCache(cfg.canonicalUrlCacheSize, cfg.doubleUrlEncode, listener)
+                : null;
+
+        if (cfg.warmUpRequests > 0) {
+            try {
+                warmUp(cfg.warmUpRequests);
+            } catch (IOException e) {
+                throw new UncheckedIOException("warm-up failed: " + e.getMessage(), e);
+            }
+        }
     }
 
-    public AwsSigningInterceptor(AwsConfiguration cfg) {
-        this(cfg, ZonedDateTime::now);
+    /**
+     * warmUp signs synthetic requests through the whole signing pipeline, so the first real requests do not pay
+     * for looking up credentials, deriving the signing key, initializing the JCA providers or running interpreted code.
+     * Nothing is sent. Only {@link SigningListener#warmedUp} is reported, and no signatures are cached.
+     *
+     * @param requests how many requests to sign, a few thousand gives the JIT compiler a chance to compile the hot path
+     * @return how long the warm-up took
+     * @throws IOException if the credentials could not be fetched
+     */
+    public Duration warmUp(int requests) throws IOException {
+        if (requests < 1) {
+            throw new IllegalArgumentException("requests must be positive: " + requests);
+        }
+        long start = System.nanoTime();
+        byte[] payload = new byte[WARM_UP_PAYLOAD_SIZE];
+        for (int i = 0; i < requests; i++) {
+            // every request is different, so a signature cache does not make the warm-up skip signing
+            Request.Builder request = new Request.Builder()
+                    .url(WARM_UP_URL)
+                    .header("Host", WARM_UP_URL.host())
+                    .header("X-Amz-Meta-Warm-Up", Integer.toString(i));
+            if ((i & 1) == 1) {
+                request.put(RequestBody.create(null, payload));
+            }
+            // the synthetic requests are kept out of the metrics, and out of the signature cache
+            sign(request.build(), clock.now(), SigningListener.NOOP, null);
+        }
+        long nanos = System.nanoTime() - start;
+        listener.warmedUp(requests, nanos);
+        return Duration.ofNanos(nanos);
     }
 
 
     @Override
     public Response intercept(Chain chain) throws IOException {
         Request request = chain.request();
-        ZonedDateTime timestamp = clock.get();
+        SpooledRequestBody spooled = spool(request);
+        if (spooled != null) {
+            request = request.newBuilder()
+                    .method(request.method(), spooled)
+                    .build();
+        }
+        try {
+            SigningTime time = clock.now();
+            Response response = chain.proceed(sign(request, time, listener, signatures));
+            if (!cfg.correctClockSkew) {
+                return response;
+            }
+            return correctClockSkew(chain, request, time, response);
+        } finally {
+            // retries and redirects happen within proceed, so the copy of the body is not needed after it
+            if (spooled != null) {
+                spooled.release();
+            }
+        }
+    }
+
+    // spool copies a body of unknown length while it is hashed, since it may not be possible to write it twice.
+    // Returns null for bodies that are not hashed, or that can be written again.
+    private SpooledRequestBody spool(Request request) throws IOException {
+        RequestBody body = request.body();
+        if (body == null
+                || body.contentLength() != -1
+                || cfg.payloadSigningMode != PayloadSigningMode.SIGNED
+                || body instanceof AwsChunkedRequestBody
+                || body instanceof UnsignedTrailerRequestBody
+                || body instanceof PrehashedRequestBody
+                || (cfg.trustContentSha256Header && request.header(CONTENT_SHA256_HEADER) != null)) {
+            return null;
+        }
+        long start = measure ? System.nanoTime() : 0;
+        SpooledRequestBody spooled = SpooledRequestBody.spool(body, cfg.payloadSpillThreshold, cfg.payloadSpillDirectory);
+        if (measure) {
+            listener.payloadHashed(spooled.contentLength(), System.nanoTime() - start);
+        }
+        return spooled;
+    }
+
+    // correctClockSkew looks for a response rejecting the request because of the time it was signed with.
+    // It then sets the skew of the clock from the Date of the response, so later requests are signed with
+    // the time of the server, and signs and sends the request once more.
+    // As a network interceptor, or with a body that may not be possible to write twice, only the clock is corrected.
+    private Response correctClockSkew(Chain chain, Request request, SigningTime signedAt, Response response) throws IOException {
+        if (response.code() != 400 && response.code() != 403) {
+            return response;
+        }
+        Date serverDate = response.headers().getDate("Date");
+        if (serverDate == null) {
+            return response;
+        }
+        long serverEpochSecond = serverDate.getTime() / 1000;
+        if (Math.abs(serverEpochSecond - signedAt.epochSecond) < CLOCK_SKEW_TOLERANCE_SECONDS) {
+            return response;
+        }
+        if (!isClockSkewError(request, response)) {
+            return response;
+        }
 
-        byte[] signatureKey = Tools.getSignatureKey(cfg.awsSecretKey, timestamp, cfg.awsRegion, cfg.awsServiceName);
+        long skewSeconds = clock.adjustSkew(serverEpochSecond);
+        boolean retry = chain.connection() == null && isReplayable(request.body());
+        listener.clockSkewCorrected(skewSeconds, retry);
+        if (!retry) {
+            return response;
+        }
+        response.close();
+        return chain.proceed(sign(request, clock.now(), listener, signatures));
+    }
 
-        String awsAuthorizationHeader = makeAWSAuthorizationHeader(timestamp, request, signatureKey);
+    private static boolean isClockSkewError(Request request, Response response) throws IOException {
+        if ("HEAD".equals(request.method())) {
+            // the error code is in the body, and a HEAD response has none.
+            // The time is already known to be off, so a 403 is taken to be caused by it.
+            return response.code() == 403;
+        }
+        String error = response.peekBody(ERROR_PEEK_BYTES).string();
+        for (String code : CLOCK_SKEW_ERRORS) {
+            if (error.contains(code)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
-        String amzTimestamp = timestampFormat.format(timestamp);
+    // isReplayable tells if a body is known to write the same bytes every time it is written.
+    // RequestBody.create builds bodies from byte arrays, ByteStrings and files, which all can be written again.
+    private static boolean isReplayable(RequestBody body) {
+        return body == null
+                || body instanceof SpooledRequestBody
+                || body instanceof FileRequestBody
+                || body.getClass().getEnclosingClass() == RequestBody.class;
+    }
 
-        Request signedRequest = request.newBuilder()
+    // sign reports to the given listener, and caches signatures in the given cache unless it is null
+    private Request sign(Request request, SigningTime time, SigningListener listener, SignatureCache signatures) throws IOException {
+        boolean measure = listener != SigningListener.NOOP;
+        long start = measure ? System.nanoTime() : 0;
+
+        AwsCredentials credentials = cfg.credentialsProvider.getCredentials();
+        SigningContext signingContext = null;
+        SigV4aKeyCache.Context sigV4aContext = null;
+        if (sigV4aKeys != null) {
+            sigV4aContext = sigV4aKeys.get(credentials.accessKeyId, credentials.secretAccessKey, time, listener);
+        } else {
+            signingContext = signingKeys.get(credentials.accessKeyId, credentials.secretAccessKey, time, listener);
+        }
+        if (credentials.sessionToken != null) {
+            // temporary credentials must send their session token, and it is signed with the other headers
+            request = request.newBuilder()
+                    .header(SECURITY_TOKEN_HEADER, credentials.sessionToken)
+                    .build();
+        }
+        if (sigV4aContext != null) {
+            // the scope of a SigV4A signature has no region, the regions it is valid for are signed in this header
+            request = request.newBuilder()
+                    .header(REGION_SET_HEADER, cfg.regionSet)
+                    .build();
+        }
+
+        RequestBody body = request.body();
+        String payloadHash;
+        if (body instanceof AwsChunkedRequestBody) {
+            if (sigV4aContext != null) {
+                throw new IllegalStateException("aws-chunked signed payloads are not supported with SIGV4A, use UnsignedTrailerRequestBody");
+            }
+            payloadHash = STREAMING_PAYLOAD;
+            request = prepareChunkedRequest(request, STREAMING_PAYLOAD, ((AwsChunkedRequestBody) body).decodedContentLength())
+                    .build();
+        } else if (body instanceof UnsignedTrailerRequestBody) {
+            UnsignedTrailerRequestBody trailerBody = (UnsignedTrailerRequestBody) body;
+            payloadHash = STREAMING_UNSIGNED_PAYLOAD_TRAILER;
+            request = prepareChunkedRequest(request, STREAMING_UNSIGNED_PAYLOAD_TRAILER, trailerBody.decodedContentLength())
+                    .header(TRAILER_HEADER, trailerBody.algorithm().headerName)
+                    .build();
+        } else if (cfg.trustContentSha256Header && request.header(CONTENT_SHA256_HEADER) != null) {
+            // the caller already knows the payload hash, and the header is signed as it is
+            payloadHash = request.header(CONTENT_SHA256_HEADER);
+        } else {
+            payloadHash = payloadHash(body, listener);
+            if (cfg.payloadSigningMode != PayloadSigningMode.SIGNED) {
+                // S3 requires x-amz-content-sha256 whenever the payload is not signed the default way
+                request = request.newBuilder()
+                        .header(CONTENT_SHA256_HEADER, payloadHash)
+                        .build();
+            }
+        }
+
+        // a aws-chunked body needs the signature itself, not just the header, so it is never cached
+        BoundedCache<String, String> cachedSignatures = null;
+        String signatureKey = null;
+        String signature = null;
+        String awsAuthorizationHeader = null;
+        if (signatures != null && !(body instanceof AwsChunkedRequestBody)) {
+            cachedSignatures = signatures.forTime(time, credentials.accessKeyId, credentials.secretAccessKey);
+            signatureKey = SignatureCache.key(request, payloadHash);
+            awsAuthorizationHeader = cachedSignatures.get(signatureKey);
+            listener.cacheAccessed(SigningListener.SIGNATURE_CACHE, awsAuthorizationHeader != null);
+        }
+
+        if (awsAuthorizationHeader == null) {
+            long canonicalStart = measure ? System.nanoTime() : 0;
+            CanonicalRequest canonicalRequest = makeCanonicalRequest(time, request, canonicalUrl(request.url(), listener), payloadHash, false);
+            long signatureStart = measure ? System.nanoTime() : 0;
+            if (sigV4aContext != null) {
+                signature = makeSigV4aSignature(time, canonicalRequest, sigV4aContext);
+                awsAuthorizationHeader = makeAWSAuthorizationHeader(sigV4aContext.authorizationPrefix, canonicalRequest, signature);
+            } else {
+                signature = makeSignature(time, canonicalRequest, signingContext);
+                awsAuthorizationHeader = makeAWSAuthorizationHeader(signingContext.authorizationPrefix, canonicalRequest, signature);
+            }
+            if (measure) {
+                listener.canonicalRequestBuilt(signatureStart - canonicalStart);
+                listener.signatureComputed(System.nanoTime() - signatureStart);
+            }
+            if (cachedSignatures != null) {
+                cachedSignatures.put(signatureKey, awsAuthorizationHeader);
+            }
+        }
+
+        Request.Builder signedRequest = request.newBuilder()
                 .removeHeader(AUTHORIZATION_HEADER)
                 .addHeader(AUTHORIZATION_HEADER, awsAuthorizationHeader)
-                .addHeader("X-Amz-Date", amzTimestamp)
-                .build();
+                .addHeader("X-Amz-Date", time.amzDate);
+
+        if (body instanceof AwsChunkedRequestBody) {
+            // the signature of the request is the seed for the signature of the first chunk
+            ChunkSigner chunkSigner = new ChunkSigner(signingContext, time.amzDate, signature);
+            signedRequest.method(request.method(), ((AwsChunkedRequestBody) body).withSigner(chunkSigner));
+        }
 
-        return chain.proceed(signedRequest);
+        Request signed = signedRequest.build();
+        if (measure) {
+            listener.requestSigned(System.nanoTime() - start);
+        }
+        return signed;
     }
 
-    @VisibleForTesting
-    String makeAWSAuthorizationHeader(ZonedDateTime timestamp, Request request, byte[] signatureKey) throws IOException {
-        String datestamp = dateFormat.format(timestamp);
+    private CanonicalUrl canonicalUrl(HttpUrl url, SigningListener listener) {
+        if (canonicalUrls != null) {
+            return canonicalUrls.get(url, listener);
+        }
+        return CanonicalUrl.of(url, cfg.doubleUrlEncode);
+    }
+
+    // prepareChunkedRequest adds the headers that must be signed for a aws-chunked payload.
+    // See: https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+    private static Request.Builder prepareChunkedRequest(Request request, String contentSha256, long decodedContentLength) {
+        String contentEncoding = request.header(CONTENT_ENCODING_HEADER);
+        if (contentEncoding == null || contentEncoding.isEmpty()) {
+            contentEncoding = "aws-chunked";
+        } else {
+            contentEncoding = "aws-chunked," + contentEncoding;
+        }
 
-        String credentials = Joiner.on('/').join(
+        Request.Builder builder = request.newBuilder()
+                .header(CONTENT_SHA256_HEADER, contentSha256)
+                .header(CONTENT_ENCODING_HEADER, contentEncoding);
+
+        if (decodedContentLength != -1) {
+            builder.header(DECODED_CONTENT_LENGTH_HEADER, Long.toString(decodedContentLength));
+        }
+        return builder;
+    }
+
+    // used by tests
+    String makeAWSAuthorizationHeader(ZonedDateTime timestamp, Request request, byte[] signatureKey) throws IOException {
+        SigningTime time = SigningTime.ofEpochSecond(timestamp.toEpochSecond());
+        SigningContext signingContext = new SigningContext(
                 cfg.awsAccessKey,
-                datestamp,
+                cfg.awsSecretKey,
+                LocalDate.ofEpochDay(time.epochDay),
                 cfg.awsRegion,
                 cfg.awsServiceName,
-                "aws4_request"
+                signatureKey
         );
+        return makeAWSAuthorizationHeader(time, request, PayloadHasher.sha256Hex(request.body()), signingContext);
+    }
 
+    String makeAWSAuthorizationHeader(
+            SigningTime time,
+            Request request,
+            String payloadHash,
+            SigningContext signingContext
+    ) {
         CanonicalRequest canonicalRequest = makeCanonicalRequest(
-                timestamp,
-                request
+                time,
+                request,
+                canonicalUrl(request.url(), listener),
+                payloadHash,
+                false
         );
+        String signature = makeSignature(time, canonicalRequest, signingContext);
+        return makeAWSAuthorizationHeader(signingContext.authorizationPrefix, canonicalRequest, signature);
+    }
 
-        Map<String, List<String>> signedHeaders = canonicalRequest.signedHeaders;
-        String requestHash = Utils.hexHash(canonicalRequest.canonicalRequest);
-        String stringToSign = createStringToSign(timestamp, requestHash);
-        String signature = Tools.createSignature(signatureKey, stringToSign);
+    private static String makeSignature(SigningTime time, CanonicalRequest canonicalRequest, SigningContext signingContext) {
+        String stringToSign = createStringToSign(time, signingContext.credentialScope, canonicalRequest.hash);
+        return Tools.createSignature(signingContext.signingMac, stringToSign);
+    }
 
-        String signedHeadersStr = Joiner.on(";").join(signedHeaders.keySet());
+    private static String makeSigV4aSignature(SigningTime time, CanonicalRequest canonicalRequest, SigV4aKeyCache.Context ctx) {
+        String stringToSign = createStringToSign(SigV4aKeyCache.ALGORITHM, time, ctx.credentialScope, canonicalRequest.hash);
+        return ctx.sign(stringToSign);
+    }
 
-        StringBuilder authorization = new StringBuilder(AMZ_ALGORITHM_HMAC_SHA256).append(" ")
-                .append("Credential=").append(credentials)
-                .append(", ")
-                .append("SignedHeaders=").append(signedHeadersStr)
+    private static String makeAWSAuthorizationHeader(
+            String authorizationPrefix,
+            CanonicalRequest canonicalRequest,
+            String signature
+    ) {
+        StringBuilder authorization = new StringBuilder(authorizationPrefix)
+                .append(canonicalRequest.signedHeaders)
                 .append(", ")
                 .append("Signature=").append(signature);
 
@@ -116,12 +425,16 @@ public class AwsSigningInterceptor implements Interceptor {
     }
 
     static class CanonicalRequest {
+        // canonicalRequest is the full text of the canonical request, only kept when asked for
         final String canonicalRequest;
-        // signedHeaders includes a copy of the headers we chose to include for the signature
-        final Map<String, List<String>> signedHeaders;
+        // hash is the hex encoded SHA-256 of the canonical request
+        final String hash;
+        // signedHeaders is the names of the headers we chose to include for the signature, separated by ';'
+        final String signedHeaders;
 
-        CanonicalRequest(String canonicalRequest, Map<String, List<String>> signedHeaders) {
+        CanonicalRequest(String canonicalRequest, String hash, String signedHeaders) {
             this.canonicalRequest = canonicalRequest;
+            this.hash = hash;
             this.signedHeaders = signedHeaders;
         }
     }
@@ -130,31 +443,35 @@ public class AwsSigningInterceptor implements Interceptor {
     // makeCanonicalRequest creates a string representing a request for the purpose of signing it as a AWS
     // signed request.
     // See also: http://docs.aws.amazon.com/general/latest/gr/sigv4-create-canonical-request.html
-    @VisibleForTesting
+    // used by tests
     CanonicalRequest makeCanonicalRequest(ZonedDateTime timestamp, Request request) throws IOException {
-        RequestBody body = request.body();
-        String bodyHash = JCloudTools.getEmptyPayloadContentHash();
-        if (body != null) {
-            Buffer sink = new Buffer();
-            body.writeTo(sink);
-            bodyHash = sink.sha256().hex();
-        }
-
-        HttpUrl url = request.url();
-        String canonicalPath = Tools.getCanonicalPath(url);
+        return makeCanonicalRequest(timestamp, request, PayloadHasher.sha256Hex(request.body()));
+    }
 
-        Map<String, List<String>> headersToSign = request.headers().toMultimap();
+    CanonicalRequest makeCanonicalRequest(ZonedDateTime timestamp, Request request, String bodyHash) {
+        SigningTime time = SigningTime.ofEpochSecond(timestamp.toEpochSecond());
+        return makeCanonicalRequest(time, request, bodyHash, true);
+    }
 
-        // replace x-amz-date with one we know is same as the timestamp we have signed in the signature
-        String amzTimestamp = timestampFormat.format(timestamp);
-        headersToSign.remove("x-amz-date");
-        headersToSign.put("x-amz-date", Lists.newArrayList(amzTimestamp));
+    // makeCanonicalRequest writes the canonical request straight into a SHA-256 digest.
+    // The text of the canonical request is only kept when keepText is set.
+    static CanonicalRequest makeCanonicalRequest(SigningTime time, Request request, String bodyHash, boolean keepText) {
+        return makeCanonicalRequest(time, request, CanonicalUrl.of(request.url(), false), bodyHash, keepText);
+    }
 
-        String canonicalHeaders = Tools.createCanonicalHeaderString(headersToSign);
+    static CanonicalRequest makeCanonicalRequest(
+            SigningTime time,
+            Request request,
+            CanonicalUrl canonicalUrl,
+            String bodyHash,
+            boolean keepText
+    ) {
+        String canonicalPath = canonicalUrl.path;
 
-        String canonicalQueryString = Tools.createCanonicalQueryString(request.url());
+        // replace x-amz-date with one we know is same as the timestamp we have signed in the signature
+        CanonicalHeaders headersToSign = CanonicalHeaders.of(request.headers(), "x-amz-date", time.amzDate);
 
-        String signedHead = Joiner.on(";").join(headersToSign.keySet());
+        String canonicalQueryString = canonicalUrl.query;
 
         // CanonicalRequest =
         //        HTTPRequestMethod + '\n' +
@@ -164,25 +481,91 @@ public class AwsSigningInterceptor implements Interceptor {
         //                SignedHeaders + '\n' +
         //                HexEncode(Hash(RequestPayload))
 
-        String canonicalRequest = request.method() + '\n' +
-                canonicalPath + '\n' +
-                canonicalQueryString + '\n' +
-                canonicalHeaders + '\n' + '\n' +
-                signedHead + '\n' +
-                bodyHash;
+        Sha256Writer canonicalRequest = new Sha256Writer(keepText)
+                .append(request.method()).append('\n')
+                .append(canonicalPath).append('\n')
+                .append(canonicalQueryString).append('\n')
+                .append(headersToSign.canonicalHeaders).append('\n').append('\n')
+                .append(headersToSign.signedHeaders).append('\n')
+                .append(bodyHash);
 
-        return new CanonicalRequest(canonicalRequest, headersToSign);
+        String text = canonicalRequest.text();
+        return new CanonicalRequest(text, canonicalRequest.hexDigest(), headersToSign.signedHeaders);
     }
 
-    @VisibleForTesting
+    // payloadHash returns the hex encoded SHA-256 of the body, or UNSIGNED-PAYLOAD when the configuration
+    // says the body should not be hashed.
+    // See: https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-header-based-auth.html
+    String payloadHash(RequestBody body) throws IOException {
+        return payloadHash(body, listener);
+    }
+
+    private String payloadHash(RequestBody body, SigningListener listener) throws IOException {
+        if (body instanceof PrehashedRequestBody) {
+            // a known hash costs nothing, so it is used whatever the payload signing mode
+            return ((PrehashedRequestBody) body).sha256Hex();
+        }
+        if (body instanceof SpooledRequestBody) {
+            // hashed while it was copied
+            return ((SpooledRequestBody) body).sha256Hex();
+        }
+        switch (cfg.payloadSigningMode) {
+            case UNSIGNED:
+                return UNSIGNED_PAYLOAD;
+            case UNSIGNED_ABOVE_THRESHOLD:
+                if (body != null) {
+                    long contentLength = body.contentLength();
+                    if (contentLength == -1 || contentLength > cfg.unsignedPayloadThreshold) {
+                        return UNSIGNED_PAYLOAD;
+                    }
+                }
+                return hashPayload(body, listener);
+            default:
+                return hashPayload(body, listener);
+        }
+    }
+
+    private static String hashPayload(RequestBody body, SigningListener listener) throws IOException {
+        if (body instanceof FileRequestBody) {
+            return hashFile((FileRequestBody) body, listener);
+        }
+        if (listener == SigningListener.NOOP) {
+            return PayloadHasher.sha256Hex(body);
+        }
+        long start = System.nanoTime();
+        long[] bytesHashed = new long[1];
+        String hash = PayloadHasher.sha256Hex(body, bytes -> bytesHashed[0] = bytes);
+        listener.payloadHashed(bytesHashed[0], System.nanoTime() - start);
+        return hash;
+    }
+
+    // hashFile hashes a file body straight from the file, instead of writing it to a hashing sink
+    private static String hashFile(FileRequestBody body, SigningListener listener) throws IOException {
+        if (listener == SigningListener.NOOP) {
+            return body.sha256Hex();
+        }
+        long start = System.nanoTime();
+        String hash = body.sha256Hex();
+        listener.payloadHashed(body.contentLength(), System.nanoTime() - start);
+        return hash;
+    }
+
+    // used by tests
     String createStringToSign(ZonedDateTime timestamp, String requestHash) {
-        String dateTime = timestampFormat.format(timestamp);
-        String datestamp = dateFormat.format(timestamp);
+        SigningTime time = SigningTime.ofEpochSecond(timestamp.toEpochSecond());
+
+        String credentialScope = time.dateStamp + '/' + cfg.awsRegion + '/' + cfg.awsServiceName + "/aws4_request";
 
-        String credentialScope = Joiner.on('/').join(datestamp, cfg.awsRegion, cfg.awsServiceName, "aws4_request");
+        return createStringToSign(time, credentialScope, requestHash);
+    }
+
+    static String createStringToSign(SigningTime time, String credentialScope, String requestHash) {
+        return createStringToSign(AMZ_ALGORITHM_HMAC_SHA256, time, credentialScope, requestHash);
+    }
 
-        return "AWS4-HMAC-SHA256" + '\n' +
-                dateTime + '\n' +
+    static String createStringToSign(String algorithm, SigningTime time, String credentialScope, String requestHash) {
+        return algorithm + '\n' +
+                time.amzDate + '\n' +
                 credentialScope + '\n' +
                 requestHash;
 
@@ -0,0 +1,72 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.BoundedCache;
+import com.github.esiqveland.okhttp3.awssigner.utils.CanonicalPath;
+import com.github.esiqveland.okhttp3.awssigner.utils.CanonicalQueryString;
+import okhttp3.HttpUrl;
+
+/**
+ * CanonicalUrlCache keeps the canonical path and query string of recently signed urls.
+ * <p>
+ * Clients usually talk to a small set of endpoints, so escaping and sorting the same query parameters
+ * for every request is wasted work. Entries are keyed by the encoded path and query of the url,
+ * which is all the canonical forms depend on.
+ */
+final class CanonicalUrlCache {
+    private final BoundedCache<String, CanonicalUrl> urls;
+    private final boolean doubleEncode;
+    private final SigningListener listener;
+
+    CanonicalUrlCache(int maxSize, boolean doubleEncode, SigningListener listener) {
+        this.urls = new BoundedCache<>(maxSize);
+        this.doubleEncode = doubleEncode;
+        this.listener = listener;
+    }
+
+    CanonicalUrl get(HttpUrl url) {
+        return get(url, listener);
+    }
+
+    // get reports to the given listener instead of the one of the cache, like SigningKeyCache
+    CanonicalUrl get(HttpUrl url, SigningListener listener) {
+        String encodedQuery = url.encodedQuery();
+        String key = encodedQuery == null ? url.encodedPath() : url.encodedPath() + '?' + encodedQuery;
+        CanonicalUrl canonical = urls.get(key);
+        boolean hit = canonical != null;
+        if (!hit) {
+            canonical = CanonicalUrl.of(url, doubleEncode);
+            urls.put(key, canonical);
+        }
+        listener.cacheAccessed(SigningListener.CANONICAL_URL_CACHE, hit);
+        return canonical;
+    }
+
+    static final class CanonicalUrl {
+        final String path;
+        final String query;
+
+        CanonicalUrl(String path, String query) {
+            this.path = path;
+            this.query = query;
+        }
+
+        static CanonicalUrl of(HttpUrl url, boolean doubleEncode) {
+            return new CanonicalUrl(CanonicalPath.of(url, doubleEncode), CanonicalQueryString.of(url));
+        }
+    }
+}
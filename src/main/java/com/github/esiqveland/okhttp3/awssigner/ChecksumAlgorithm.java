@@ -0,0 +1,108 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Crc32c;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.CRC32;
+import java.util.zip.Checksum;
+
+/**
+ * ChecksumAlgorithm is a flexible checksum S3 can verify an upload with, sent as a x-amz-checksum-* header or trailer.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/userguide/checking-object-integrity.html
+ */
+public enum ChecksumAlgorithm {
+    CRC32("x-amz-checksum-crc32", 4),
+    CRC32C("x-amz-checksum-crc32c", 4),
+    SHA256("x-amz-checksum-sha256", 32);
+
+    // headerName is the name of the header or trailer carrying the checksum
+    public final String headerName;
+    // length is the length of the checksum in bytes, before base64 encoding
+    final int length;
+
+    ChecksumAlgorithm(String headerName, int length) {
+        this.headerName = headerName;
+        this.length = length;
+    }
+
+    // base64Length is the length of the base64 encoded checksum
+    int base64Length() {
+        return (length + 2) / 3 * 4;
+    }
+
+    RunningChecksum newChecksum() {
+        switch (this) {
+            case CRC32:
+                return new CrcChecksum(new CRC32());
+            case CRC32C:
+                return new CrcChecksum(new Crc32c());
+            default:
+                return new DigestChecksum();
+        }
+    }
+
+    // RunningChecksum is updated as bytes are written, and gives the big-endian checksum bytes at the end
+    interface RunningChecksum {
+        void update(byte[] b, int off, int len);
+
+        byte[] value();
+    }
+
+    private static final class CrcChecksum implements RunningChecksum {
+        private final Checksum crc;
+
+        CrcChecksum(Checksum crc) {
+            this.crc = crc;
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            crc.update(b, off, len);
+        }
+
+        @Override
+        public byte[] value() {
+            long value = crc.getValue();
+            return new byte[]{(byte) (value >>> 24), (byte) (value >>> 16), (byte) (value >>> 8), (byte) value};
+        }
+    }
+
+    private static final class DigestChecksum implements RunningChecksum {
+        private final MessageDigest digest;
+
+        DigestChecksum() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        @Override
+        public void update(byte[] b, int off, int len) {
+            digest.update(b, off, len);
+        }
+
+        @Override
+        public byte[] value() {
+            return digest.digest();
+        }
+    }
+}
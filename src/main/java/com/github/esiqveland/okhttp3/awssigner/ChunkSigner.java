@@ -0,0 +1,62 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.JCloudTools;
+import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
+
+/**
+ * ChunkSigner computes the rolling chunk signatures of an aws-chunked payload.
+ * Each signature covers the hash of the chunk and the signature of the chunk before it,
+ * starting from the seed signature of the request.
+ * <p>
+ * A ChunkSigner is used by one writer at a time. Use {@link #copy()} to start over from the seed.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+ */
+final class ChunkSigner {
+    static final String ALGORITHM = "AWS4-HMAC-SHA256-PAYLOAD";
+
+    private final SigningContext signingContext;
+    private final String amzDate;
+    private final String seedSignature;
+    private String previousSignature;
+
+    ChunkSigner(SigningContext signingContext, String amzDate, String seedSignature) {
+        this.signingContext = signingContext;
+        this.amzDate = amzDate;
+        this.seedSignature = seedSignature;
+        this.previousSignature = seedSignature;
+    }
+
+    ChunkSigner copy() {
+        return new ChunkSigner(signingContext, amzDate, seedSignature);
+    }
+
+    // sign returns the signature of the next chunk, given the hex encoded SHA-256 of its data
+    String sign(String chunkHash) {
+        String stringToSign = ALGORITHM + '\n' +
+                amzDate + '\n' +
+                signingContext.credentialScope + '\n' +
+                previousSignature + '\n' +
+                JCloudTools.getEmptyPayloadContentHash() + '\n' +
+                chunkHash;
+
+        previousSignature = Tools.createSignature(signingContext.signingMac, stringToSign);
+        return previousSignature;
+    }
+}
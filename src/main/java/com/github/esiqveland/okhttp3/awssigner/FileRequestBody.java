@@ -0,0 +1,180 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Sha256Writer;
+import com.github.esiqveland.okhttp3.awssigner.utils.Utils;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+
+/**
+ * FileRequestBody sends a file, or a range of it, and hashes it straight from the file.
+ * <p>
+ * {@link AwsSigningInterceptor} hashes the file by memory mapping it a window at a time,
+ * instead of copying it through heap buffers, and the hash is kept for retries
+ * until the size or modification time of the file changes.
+ * Sending also reads from mapped windows, so the file is copied once, into the connection's buffer.
+ * <p>
+ * The file must not change between signing and sending.
+ */
+public class FileRequestBody extends RequestBody {
+    // MAP_WINDOW is the most of the file mapped at once
+    static final long MAP_WINDOW = 64 * 1024 * 1024;
+    // WRITE_SIZE is how much is handed to the sink at a time, so the sink never buffers a whole window
+    private static final int WRITE_SIZE = 64 * 1024;
+
+    private final MediaType contentType;
+    private final Path path;
+    private final long position;
+    // length is -1 for the rest of the file from position
+    private final long length;
+    private final long mapWindow;
+    private volatile Hash hash;
+
+    public FileRequestBody(MediaType contentType, File file) {
+        this(contentType, file.toPath());
+    }
+
+    public FileRequestBody(MediaType contentType, Path path) {
+        this(contentType, path, 0, -1);
+    }
+
+    /**
+     * @param contentType the content type, may be null
+     * @param path        the file to send
+     * @param position    where in the file the body starts
+     * @param length      the number of bytes to send, or -1 for the rest of the file
+     */
+    public FileRequestBody(MediaType contentType, Path path, long position, long length) {
+        this(contentType, path, position, length, MAP_WINDOW);
+    }
+
+    // used by tests, to cross window boundaries with small files
+    FileRequestBody(MediaType contentType, Path path, long position, long length, long mapWindow) {
+        if (path == null) {
+            throw new IllegalArgumentException("path must not be null");
+        }
+        if (position < 0) {
+            throw new IllegalArgumentException("position must not be negative: " + position);
+        }
+        if (length < -1) {
+            throw new IllegalArgumentException("length must be -1 or more: " + length);
+        }
+        this.contentType = contentType;
+        this.path = path;
+        this.position = position;
+        this.length = length;
+        this.mapWindow = mapWindow;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        if (length != -1) {
+            return length;
+        }
+        return Math.max(0, Files.size(path) - position);
+    }
+
+    /**
+     * @return the hex encoded SHA-256 of the body, hashed from the file again only when the file has changed
+     */
+    public String sha256Hex() throws IOException {
+        // the attributes are read before hashing, so a change while hashing is seen by the next call
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        Hash known = hash;
+        if (known != null && known.matches(attributes)) {
+            return known.sha256Hex;
+        }
+        Hash computed = new Hash(attributes.size(), attributes.lastModifiedTime(), hash());
+        hash = computed;
+        return computed.sha256Hex;
+    }
+
+    private String hash() throws IOException {
+        MessageDigest digest = Sha256Writer.newDigest();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = position + checkedLength(channel);
+            for (long offset = position; offset < end; offset += mapWindow) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(mapWindow, end - offset));
+                digest.update(window);
+            }
+        }
+        return Utils.hex(digest.digest());
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long end = position + checkedLength(channel);
+            for (long offset = position; offset < end; offset += mapWindow) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(mapWindow, end - offset));
+                ByteBuffer slice = window.duplicate();
+                for (int start = 0; start < window.limit(); start += WRITE_SIZE) {
+                    slice.limit(Math.min(start + WRITE_SIZE, window.limit()));
+                    slice.position(start);
+                    sink.write(slice);
+                }
+            }
+        }
+    }
+
+    // checkedLength returns the number of bytes to read, failing if the file is shorter than the body
+    private long checkedLength(FileChannel channel) throws IOException {
+        long available = Math.max(0, channel.size() - position);
+        if (length == -1) {
+            return available;
+        }
+        if (available < length) {
+            throw new IOException(path + " has " + available + " bytes from position " + position + ", expected " + length);
+        }
+        return length;
+    }
+
+    // Hash is the hash of the body, with the size and modification time of the file it was hashed from
+    private static final class Hash {
+        final long fileSize;
+        final FileTime lastModified;
+        final String sha256Hex;
+
+        Hash(long fileSize, FileTime lastModified, String sha256Hex) {
+            this.fileSize = fileSize;
+            this.lastModified = lastModified;
+            this.sha256Hex = sha256Hex;
+        }
+
+        boolean matches(BasicFileAttributes attributes) {
+            return fileSize == attributes.size() && lastModified.equals(attributes.lastModifiedTime());
+        }
+    }
+}
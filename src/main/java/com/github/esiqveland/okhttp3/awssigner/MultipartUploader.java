@@ -0,0 +1,373 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Sha256Writer;
+import com.github.esiqveland.okhttp3.awssigner.utils.Utils;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * MultipartUploader uploads a file or a stream to S3 as a multipart upload, with the parts
+ * hashed, signed and sent in parallel.
+ * <p>
+ * Each part is its own request, so the SHA-256 of each part can be computed on its own thread.
+ * Parts are handed to the executor as they are read, so reading, hashing and sending overlap,
+ * and at most maxPartsInFlight parts are in progress at once. For streams that also caps memory
+ * to maxPartsInFlight times partSize. File parts are read straight from the file with {@link FileRequestBody}.
+ * <p>
+ * The client must sign requests with an {@link AwsSigningInterceptor} for the s3 service.
+ * The executor should be bounded; parts run one per task.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/dev/mpuoverview.html
+ */
+public class MultipartUploader {
+    // S3 rejects parts smaller than 5 MiB, except for the last one
+    public static final long MIN_PART_SIZE = 5 * 1024 * 1024;
+    // S3 allows at most 10000 parts in an upload
+    public static final int MAX_PARTS = 10_000;
+
+    private static final MediaType XML = MediaType.parse("application/xml");
+
+    private final OkHttpClient client;
+    private final Executor executor;
+    private final long partSize;
+    private final int maxPartsInFlight;
+
+    /**
+     * @param client           a client that signs requests for S3
+     * @param executor         runs the parts, each on its own task
+     * @param partSize         the size of each part except the last, at least {@link #MIN_PART_SIZE}
+     * @param maxPartsInFlight the most parts being read, hashed or sent at once
+     */
+    public MultipartUploader(OkHttpClient client, Executor executor, long partSize, int maxPartsInFlight) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (executor == null) {
+            throw new IllegalArgumentException("executor must not be null");
+        }
+        if (partSize < MIN_PART_SIZE || partSize > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("partSize must be between " + MIN_PART_SIZE + " and 2 GiB: " + partSize);
+        }
+        if (maxPartsInFlight < 1) {
+            throw new IllegalArgumentException("maxPartsInFlight must be at least 1: " + maxPartsInFlight);
+        }
+        this.client = client;
+        this.executor = executor;
+        this.partSize = partSize;
+        this.maxPartsInFlight = maxPartsInFlight;
+    }
+
+    /**
+     * upload sends a file as a multipart upload. The upload is aborted if any part fails.
+     *
+     * @param objectUrl the URL of the object, such as https://bucket.s3.amazonaws.com/key
+     * @return the ETag of the completed object
+     */
+    public String upload(HttpUrl objectUrl, Path file, MediaType contentType) throws IOException {
+        long size = Files.size(file);
+        checkPartCount(size);
+        String uploadId = initiate(objectUrl, contentType);
+        Upload upload = new Upload(objectUrl, uploadId);
+        try {
+            long position = 0;
+            int partNumber = 1;
+            do {
+                long length = Math.min(partSize, size - position);
+                upload.submit(partNumber++, new FileRequestBody(null, file, position, length));
+                position += length;
+            } while (position < size);
+            return upload.complete();
+        } catch (IOException | RuntimeException e) {
+            upload.abort(e);
+            throw e;
+        }
+    }
+
+    /**
+     * upload sends a stream as a multipart upload, reading it on the calling thread while earlier parts are sent.
+     * The stream is not closed. The upload is aborted if any part fails.
+     *
+     * @param objectUrl the URL of the object, such as https://bucket.s3.amazonaws.com/key
+     * @return the ETag of the completed object
+     */
+    public String upload(HttpUrl objectUrl, InputStream stream, MediaType contentType) throws IOException {
+        String uploadId = initiate(objectUrl, contentType);
+        Upload upload = new Upload(objectUrl, uploadId);
+        try {
+            int partNumber = 1;
+            while (true) {
+                // wait for a free slot before reading, so no more than maxPartsInFlight parts are in memory
+                upload.acquireSlot();
+                byte[] part = readPart(stream);
+                if (part.length == 0 && partNumber > 1) {
+                    upload.releaseSlot();
+                    break;
+                }
+                if (partNumber > MAX_PARTS) {
+                    throw new IOException("stream needs more than " + MAX_PARTS + " parts of " + partSize + " bytes");
+                }
+                upload.submitAcquired(partNumber++, part);
+                if (part.length < partSize) {
+                    break;
+                }
+            }
+            return upload.complete();
+        } catch (IOException | RuntimeException e) {
+            upload.abort(e);
+            throw e;
+        }
+    }
+
+    private byte[] readPart(InputStream stream) throws IOException {
+        byte[] buffer = new byte[(int) partSize];
+        int read = 0;
+        while (read < buffer.length) {
+            int n = stream.read(buffer, read, buffer.length - read);
+            if (n == -1) {
+                break;
+            }
+            read += n;
+        }
+        if (read == buffer.length) {
+            return buffer;
+        }
+        byte[] last = new byte[read];
+        System.arraycopy(buffer, 0, last, 0, read);
+        return last;
+    }
+
+    private void checkPartCount(long size) {
+        if ((size + partSize - 1) / partSize > MAX_PARTS) {
+            throw new IllegalArgumentException("a file of " + size + " bytes needs more than " + MAX_PARTS + " parts of " + partSize + " bytes");
+        }
+    }
+
+    private String initiate(HttpUrl objectUrl, MediaType contentType) throws IOException {
+        HttpUrl url = objectUrl.newBuilder().addQueryParameter("uploads", "").build();
+        Request.Builder request = new Request.Builder()
+                .url(url)
+                .post(RequestBody.create(null, new byte[0]));
+        if (contentType != null) {
+            request.header("Content-Type", contentType.toString());
+        }
+        String uploadId = element(execute(request.build()), "UploadId");
+        if (uploadId == null) {
+            throw new IOException("initiating multipart upload to " + objectUrl + " returned no UploadId");
+        }
+        return uploadId;
+    }
+
+    private String execute(Request request) throws IOException {
+        try (Response response = client.newCall(request).execute()) {
+            ResponseBody body = response.body();
+            String content = body == null ? "" : body.string();
+            if (!response.isSuccessful()) {
+                throw new IOException(request.method() + " " + request.url() + " failed: HTTP " + response.code() + " " + content);
+            }
+            return content;
+        }
+    }
+
+    // element returns the text of the first XML element with the given name, or null
+    static String element(String xml, String name) {
+        String open = '<' + name + '>';
+        int start = xml.indexOf(open);
+        if (start == -1) {
+            return null;
+        }
+        int end = xml.indexOf("</" + name + '>', start);
+        if (end == -1) {
+            return null;
+        }
+        return unescapeXml(xml.substring(start + open.length(), end));
+    }
+
+    private static String unescapeXml(String s) {
+        if (s.indexOf('&') == -1) {
+            return s;
+        }
+        return s.replace("&quot;", "\"")
+                .replace("&apos;", "'")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&amp;", "&");
+    }
+
+    private static String escapeXml(String s) {
+        return s.replace("&", "&amp;")
+                .replace("<", "&lt;")
+                .replace(">", "&gt;")
+                .replace("\"", "&quot;");
+    }
+
+    // sha256Hex hashes a part in place, without copying it like ByteString.of does
+    private static String sha256Hex(byte[] part) {
+        return Utils.hex(Sha256Writer.newDigest().digest(part));
+    }
+
+    // Upload tracks the parts of one multipart upload
+    private final class Upload {
+        private final HttpUrl objectUrl;
+        private final String uploadId;
+        private final Semaphore slots = new Semaphore(maxPartsInFlight);
+        private final List<CompletableFuture<String>> parts = new ArrayList<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        Upload(HttpUrl objectUrl, String uploadId) {
+            this.objectUrl = objectUrl;
+            this.uploadId = uploadId;
+        }
+
+        void acquireSlot() throws IOException {
+            try {
+                slots.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted waiting to send a part");
+            }
+            Throwable failed = failure.get();
+            if (failed != null) {
+                slots.release();
+                throw failed instanceof IOException ? (IOException) failed : new IOException(failed);
+            }
+        }
+
+        void releaseSlot() {
+            slots.release();
+        }
+
+        void submit(int partNumber, FileRequestBody body) throws IOException {
+            acquireSlot();
+            // file parts are hashed by the interceptor, on the thread sending the part
+            submitAcquired(partNumber, () -> body);
+        }
+
+        void submitAcquired(int partNumber, byte[] part) {
+            submitAcquired(partNumber, () -> new PrehashedRequestBody(
+                    RequestBody.create(null, part),
+                    sha256Hex(part)
+            ));
+        }
+
+        private void submitAcquired(int partNumber, PartBody body) {
+            CompletableFuture<String> future = new CompletableFuture<>();
+            parts.add(future);
+            try {
+                executor.execute(() -> {
+                    try {
+                        future.complete(sendPart(partNumber, body.create()));
+                    } catch (Throwable e) {
+                        failure.compareAndSet(null, e);
+                        future.completeExceptionally(e);
+                    } finally {
+                        slots.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                slots.release();
+                failure.compareAndSet(null, e);
+                future.completeExceptionally(e);
+            }
+        }
+
+        private String sendPart(int partNumber, RequestBody body) throws IOException {
+            HttpUrl url = objectUrl.newBuilder()
+                    .addQueryParameter("partNumber", Integer.toString(partNumber))
+                    .addQueryParameter("uploadId", uploadId)
+                    .build();
+            Request request = new Request.Builder().url(url).put(body).build();
+            try (Response response = client.newCall(request).execute()) {
+                if (!response.isSuccessful()) {
+                    throw new IOException("uploading part " + partNumber + " of " + objectUrl + " failed: HTTP " + response.code());
+                }
+                String etag = response.header("ETag");
+                if (etag == null) {
+                    throw new IOException("uploading part " + partNumber + " of " + objectUrl + " returned no ETag");
+                }
+                return etag;
+            }
+        }
+
+        String complete() throws IOException {
+            StringBuilder xml = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < parts.size(); i++) {
+                String etag;
+                try {
+                    etag = parts.get(i).join();
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+                }
+                xml.append("<Part><PartNumber>").append(i + 1).append("</PartNumber>")
+                        .append("<ETag>").append(escapeXml(etag)).append("</ETag></Part>");
+            }
+            xml.append("</CompleteMultipartUpload>");
+
+            HttpUrl url = objectUrl.newBuilder().addQueryParameter("uploadId", uploadId).build();
+            String result = execute(new Request.Builder()
+                    .url(url)
+                    .post(RequestBody.create(XML, xml.toString()))
+                    .build());
+            // S3 can answer 200 with an error in the body when completing
+            if (result.contains("<Error>")) {
+                throw new IOException("completing multipart upload of " + objectUrl + " failed: " + result);
+            }
+            return element(result, "ETag");
+        }
+
+        void abort(Exception cause) {
+            // wait for parts in flight, so nothing is uploaded after the abort
+            for (CompletableFuture<String> part : parts) {
+                try {
+                    part.join();
+                } catch (CompletionException ignored) {
+                    // the failure is reported by the caller
+                }
+            }
+            HttpUrl url = objectUrl.newBuilder().addQueryParameter("uploadId", uploadId).build();
+            try {
+                execute(new Request.Builder().url(url).delete().build());
+            } catch (IOException e) {
+                cause.addSuppressed(e);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface PartBody {
+        RequestBody create() throws IOException;
+    }
+}
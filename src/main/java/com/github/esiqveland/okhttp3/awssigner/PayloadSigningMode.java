@@ -0,0 +1,39 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+/**
+ * PayloadSigningMode decides whether the request payload is hashed and included in the signature.
+ * <p>
+ * Only S3 accepts unsigned payloads, and only over TLS should they be used.
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/API/sig-v4-header-based-auth.html
+ */
+public enum PayloadSigningMode {
+    /**
+     * Hash every payload and include the hash in the signature. This is the default.
+     */
+    SIGNED,
+    /**
+     * Never hash the payload, sign with UNSIGNED-PAYLOAD and send {@code x-amz-content-sha256: UNSIGNED-PAYLOAD}.
+     */
+    UNSIGNED,
+    /**
+     * Sign with UNSIGNED-PAYLOAD when the body is larger than the configured threshold or of unknown length,
+     * and hash smaller bodies. {@code x-amz-content-sha256} is sent in both cases.
+     */
+    UNSIGNED_ABOVE_THRESHOLD
+}
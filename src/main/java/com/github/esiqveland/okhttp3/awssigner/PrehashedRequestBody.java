@@ -0,0 +1,83 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.util.Locale;
+
+/**
+ * PrehashedRequestBody is a body whose SHA-256 is already known, for example from a content-addressed store.
+ * <p>
+ * {@link AwsSigningInterceptor} signs it with the known hash instead of reading the body to hash it,
+ * so the body is only read once, when it is sent. The hash is trusted: if it is wrong, AWS rejects the request.
+ */
+public class PrehashedRequestBody extends RequestBody {
+    private final RequestBody delegate;
+    private final String sha256Hex;
+
+    /**
+     * @param delegate  the body to send
+     * @param sha256Hex the hex encoded SHA-256 of the body
+     */
+    public PrehashedRequestBody(RequestBody delegate, String sha256Hex) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (!isSha256Hex(sha256Hex)) {
+            throw new IllegalArgumentException("sha256Hex must be 64 hex characters: " + sha256Hex);
+        }
+        this.delegate = delegate;
+        this.sha256Hex = sha256Hex.toLowerCase(Locale.US);
+    }
+
+    // sha256Hex returns the lowercase hex encoded SHA-256 of the body
+    public String sha256Hex() {
+        return sha256Hex;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        delegate.writeTo(sink);
+    }
+
+    static boolean isSha256Hex(String s) {
+        if (s == null || s.length() != 64) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            boolean hex = (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+            if (!hex) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
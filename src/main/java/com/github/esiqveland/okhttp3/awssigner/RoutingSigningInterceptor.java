@@ -0,0 +1,198 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * RoutingSigningInterceptor signs requests to many AWS services and regions from one client,
+ * picking the region and service from the host of each request.
+ * <p>
+ * Hosts are looked up in a table of routes set up front, and otherwise parsed as AWS endpoint hostnames.
+ * Every region and service gets its own {@link AwsSigningInterceptor}, with its own cached signing key,
+ * made from the base configuration. All of them share the credentials and the clock.
+ * <p>
+ * With {@link AwsConfiguration.Builder#warmUpRequests}, the interceptor of the first route known up front,
+ * from the routes given to the builder or the region and service of the base configuration, warms up when built.
+ */
+public class RoutingSigningInterceptor implements Interceptor {
+    private final AwsConfiguration base;
+    private final SigningClock clock;
+    private final boolean parseHostnames;
+    // routes maps hosts given to the builder to their route, it is not changed after it is built
+    private final Map<String, Route> routes;
+    // interceptors holds one interceptor per region and service, keyed by "region/service"
+    private final ConcurrentHashMap<String, AwsSigningInterceptor> interceptors = new ConcurrentHashMap<>();
+    // fallback is the route of the base configuration, if it has a region and service
+    private final Route fallback;
+
+    private RoutingSigningInterceptor(Builder builder) {
+        this.base = builder.base;
+        this.clock = builder.clock;
+        this.parseHostnames = builder.parseHostnames;
+
+        this.routes = new HashMap<>(builder.routes);
+        this.fallback = base.awsRegion != null && base.awsServiceName != null
+                ? new Route(base.awsRegion, base.awsServiceName)
+                : null;
+
+        // interceptors for the routes known up front are made now, and the first of them warms up if asked to.
+        // The code it warms up is shared by all of them, so interceptors made later never warm up.
+        List<Route> known = new ArrayList<>(routes.values());
+        if (fallback != null) {
+            known.add(fallback);
+        }
+        int warmUpRequests = base.warmUpRequests;
+        for (Route route : known) {
+            if (!interceptors.containsKey(route.key)) {
+                interceptors.put(route.key, newInterceptor(route, warmUpRequests));
+                warmUpRequests = 0;
+            }
+        }
+    }
+
+    public static Builder builder(AwsConfiguration base) {
+        return new Builder(base);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        String host = chain.request().url().host();
+        Route route = route(host);
+        if (route == null) {
+            // an IOException reaches the Callback of an enqueued call, other exceptions do not
+            throw new IOException("no region and service to sign requests to " + host);
+        }
+        return interceptor(route).intercept(chain);
+    }
+
+    // route returns the region and service requests to host are signed for, or null if there is none
+    public Route route(String host) {
+        Route route = routes.get(host);
+        if (route == null && parseHostnames) {
+            route = AwsHostnames.parse(host);
+        }
+        if (route == null) {
+            route = fallback;
+        }
+        return route;
+    }
+
+    private AwsSigningInterceptor interceptor(Route route) {
+        AwsSigningInterceptor interceptor = interceptors.get(route.key);
+        if (interceptor != null) {
+            return interceptor;
+        }
+        return interceptors.computeIfAbsent(route.key, key -> newInterceptor(route, 0));
+    }
+
+    private AwsSigningInterceptor newInterceptor(Route route, int warmUpRequests) {
+        return new AwsSigningInterceptor(
+                base.toBuilder()
+                        .awsRegion(route.region)
+                        .awsServiceName(route.service)
+                        .warmUpRequests(warmUpRequests)
+                        .build(),
+                clock
+        );
+    }
+
+    /**
+     * Route is the region and the service requests are signed for.
+     */
+    public static final class Route {
+        public final String region;
+        public final String service;
+        final String key;
+
+        public Route(String region, String service) {
+            if (region == null || region.isEmpty()) {
+                throw new IllegalArgumentException("region must not be empty");
+            }
+            if (service == null || service.isEmpty()) {
+                throw new IllegalArgumentException("service must not be empty");
+            }
+            this.region = region;
+            this.service = service;
+            this.key = region + '/' + service;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Route && key.equals(((Route) o).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key;
+        }
+    }
+
+    public static class Builder {
+        private final AwsConfiguration base;
+        private final Map<String, Route> routes = new HashMap<>();
+        private boolean parseHostnames = true;
+        private SigningClock clock = SigningClock.system();
+
+        private Builder(AwsConfiguration base) {
+            if (base == null) {
+                throw new IllegalArgumentException("base configuration must not be null");
+            }
+            this.base = base;
+        }
+
+        // route signs requests to host for the given region and service, before any hostname parsing
+        public Builder route(String host, String region, String service) {
+            if (host == null || host.isEmpty()) {
+                throw new IllegalArgumentException("host must not be empty");
+            }
+            routes.put(host, new Route(region, service));
+            return this;
+        }
+
+        // parseHostnames finds the region and service of hosts without a route from AWS endpoint hostnames.
+        // It is on by default. Hosts that are neither routed nor parsed are signed with the region and
+        // service of the base configuration, when it has them.
+        public Builder parseHostnames(boolean parseHostnames) {
+            this.parseHostnames = parseHostnames;
+            return this;
+        }
+
+        public Builder clock(Supplier<ZonedDateTime> clock) {
+            this.clock = SigningClock.of(clock);
+            return this;
+        }
+
+        public RoutingSigningInterceptor build() {
+            return new RoutingSigningInterceptor(this);
+        }
+    }
+}
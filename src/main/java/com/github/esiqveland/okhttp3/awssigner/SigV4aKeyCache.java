@@ -0,0 +1,184 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.HmacSha256;
+import com.github.esiqveland.okhttp3.awssigner.utils.Utils;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.AlgorithmParameters;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.Provider;
+import java.security.Signature;
+import java.security.interfaces.ECPrivateKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.ECParameterSpec;
+import java.security.spec.ECPrivateKeySpec;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SigV4aKeyCache keeps the SigV4A signing key derived from the current credentials.
+ * <p>
+ * Deriving the key runs HMAC-SHA256 in a counter mode KDF and builds an EC private key, which costs far more
+ * than signing. The key only depends on the credentials, so it is derived once per credentials and reused
+ * across days; only the credential scope is rebuilt when the day changes.
+ */
+final class SigV4aKeyCache {
+    static final String ALGORITHM = "AWS4-ECDSA-P256-SHA256";
+    private static final String SIGNATURE_ALGORITHM = "SHA256withECDSA";
+    // ECDSA_PROVIDER is resolved once, so signing a request skips the JCA provider lookup
+    private static final Provider ECDSA_PROVIDER = ecdsaProvider();
+
+    static final ECParameterSpec P256 = p256();
+    // N_MINUS_2 is the order of the P-256 group minus two
+    private static final BigInteger N_MINUS_2 = P256.getOrder().subtract(BigInteger.valueOf(2));
+
+    private final String service;
+    private final SigningListener listener;
+    private final AtomicReference<Context> current = new AtomicReference<>();
+
+    SigV4aKeyCache(String service, SigningListener listener) {
+        this.service = service;
+        this.listener = listener;
+    }
+
+    Context get(String accessKey, String secretKey, SigningTime time) {
+        return get(accessKey, secretKey, time, listener);
+    }
+
+    // get reports to the given listener instead of the one of the cache, like SigningKeyCache
+    Context get(String accessKey, String secretKey, SigningTime time, SigningListener listener) {
+        Context ctx = current.get();
+        boolean hit = ctx != null && ctx.matches(accessKey, secretKey);
+        if (!hit) {
+            boolean measure = listener != SigningListener.NOOP;
+            long start = measure ? System.nanoTime() : 0;
+            ctx = new Context(accessKey, secretKey, time.epochDay, time.dateStamp, service, privateKey(accessKey, secretKey));
+            if (measure) {
+                listener.signingKeyDerived(System.nanoTime() - start);
+            }
+            current.set(ctx);
+        } else if (ctx.epochDay != time.epochDay) {
+            ctx = new Context(accessKey, secretKey, time.epochDay, time.dateStamp, service, ctx.privateKey);
+            current.set(ctx);
+        }
+        listener.cacheAccessed(SigningListener.SIGNING_KEY_CACHE, hit);
+        return ctx;
+    }
+
+    // derivePrivateKey derives the private key with the NIST SP 800-108 counter mode KDF, as SigV4A specifies:
+    // the first 256 bit candidate below n - 1 is used, plus one.
+    static BigInteger derivePrivateKey(String accessKey, String secretKey) {
+        HmacSha256 inputKey = HmacSha256.forKey(("AWS4A" + secretKey).getBytes(StandardCharsets.UTF_8));
+        byte[] label = ALGORITHM.getBytes(StandardCharsets.UTF_8);
+        byte[] accessKeyBytes = accessKey.getBytes(StandardCharsets.UTF_8);
+
+        for (int counter = 1; counter <= 254; counter++) {
+            ByteArrayOutputStream fixedInput = new ByteArrayOutputStream(label.length + accessKeyBytes.length + 10);
+            // i = 1, one block of output
+            fixedInput.write(0);
+            fixedInput.write(0);
+            fixedInput.write(0);
+            fixedInput.write(1);
+            fixedInput.write(label, 0, label.length);
+            fixedInput.write(0);
+            fixedInput.write(accessKeyBytes, 0, accessKeyBytes.length);
+            fixedInput.write(counter);
+            // L = 256 bits of output
+            fixedInput.write(0);
+            fixedInput.write(0);
+            fixedInput.write(1);
+            fixedInput.write(0);
+
+            BigInteger candidate = new BigInteger(1, inputKey.sign(fixedInput.toByteArray()));
+            if (candidate.compareTo(N_MINUS_2) <= 0) {
+                return candidate.add(BigInteger.ONE);
+            }
+        }
+        throw new IllegalStateException("could not derive a SigV4A key for " + accessKey);
+    }
+
+    private static ECPrivateKey privateKey(String accessKey, String secretKey) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance("EC");
+            return (ECPrivateKey) keyFactory.generatePrivate(new ECPrivateKeySpec(derivePrivateKey(accessKey, secretKey), P256));
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Provider ecdsaProvider() {
+        try {
+            return Signature.getInstance(SIGNATURE_ALGORITHM).getProvider();
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static ECParameterSpec p256() {
+        try {
+            AlgorithmParameters parameters = AlgorithmParameters.getInstance("EC");
+            parameters.init(new ECGenParameterSpec("secp256r1"));
+            return parameters.getParameterSpec(ECParameterSpec.class);
+        } catch (GeneralSecurityException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Context holds the SigV4A key and the credential scope for one day.
+     * The scope of a SigV4A signature has no region, the regions are signed in X-Amz-Region-Set instead.
+     */
+    static final class Context {
+        final String accessKey;
+        final String secretKey;
+        final long epochDay;
+        // credentialScope is "<date>/<service>/aws4_request"
+        final String credentialScope;
+        // authorizationPrefix is "AWS4-ECDSA-P256-SHA256 Credential=<accessKey>/<credentialScope>, SignedHeaders="
+        final String authorizationPrefix;
+        final ECPrivateKey privateKey;
+
+        Context(String accessKey, String secretKey, long epochDay, String dateStamp, String service, ECPrivateKey privateKey) {
+            this.accessKey = accessKey;
+            this.secretKey = secretKey;
+            this.epochDay = epochDay;
+            this.credentialScope = dateStamp + '/' + service + "/aws4_request";
+            this.authorizationPrefix = ALGORITHM + " Credential=" + accessKey + '/' + credentialScope + ", SignedHeaders=";
+            this.privateKey = privateKey;
+        }
+
+        boolean matches(String accessKey, String secretKey) {
+            return Objects.equals(this.accessKey, accessKey) && Objects.equals(this.secretKey, secretKey);
+        }
+
+        // sign returns the hex encoded DER ECDSA signature of stringToSign
+        String sign(String stringToSign) {
+            try {
+                Signature ecdsa = Signature.getInstance(SIGNATURE_ALGORITHM, ECDSA_PROVIDER);
+                ecdsa.initSign(privateKey);
+                ecdsa.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+                return Utils.hex(ecdsa.sign());
+            } catch (GeneralSecurityException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
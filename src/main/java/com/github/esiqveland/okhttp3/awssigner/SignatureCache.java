@@ -0,0 +1,80 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.BoundedCache;
+import okhttp3.Request;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SignatureCache remembers the Authorization header of requests signed within the current second.
+ * <p>
+ * Identical requests signed in the same second with the same credentials get the same signature,
+ * so pollers sending the same request over and over can skip canonicalizing and signing it.
+ * All entries are dropped as soon as the second or the credentials change, which also covers the day.
+ */
+final class SignatureCache {
+    private final int maxSize;
+    private final AtomicReference<Generation> current = new AtomicReference<>();
+
+    SignatureCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    // forTime returns the signatures made at the given second with the given credentials
+    BoundedCache<String, String> forTime(SigningTime time, String accessKey, String secretKey) {
+        Generation generation = current.get();
+        if (generation == null || !generation.matches(time.epochSecond, accessKey, secretKey)) {
+            generation = new Generation(time.epochSecond, accessKey, secretKey, new BoundedCache<>(maxSize));
+            current.set(generation);
+        }
+        return generation.signatures;
+    }
+
+    // key is everything about a request that goes into its signature, besides the time and credentials
+    static String key(Request request, String payloadHash) {
+        String url = request.url().toString();
+        String headers = request.headers().toString();
+        return new StringBuilder(request.method().length() + url.length() + headers.length() + payloadHash.length() + 2)
+                .append(request.method()).append('\n')
+                .append(url).append('\n')
+                .append(headers)
+                .append(payloadHash)
+                .toString();
+    }
+
+    private static final class Generation {
+        final long epochSecond;
+        final String accessKey;
+        final String secretKey;
+        final BoundedCache<String, String> signatures;
+
+        Generation(long epochSecond, String accessKey, String secretKey, BoundedCache<String, String> signatures) {
+            this.epochSecond = epochSecond;
+            this.accessKey = accessKey;
+            this.secretKey = secretKey;
+            this.signatures = signatures;
+        }
+
+        boolean matches(long epochSecond, String accessKey, String secretKey) {
+            return this.epochSecond == epochSecond
+                    && Objects.equals(this.accessKey, accessKey)
+                    && Objects.equals(this.secretKey, secretKey);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+/**
+ * SigningAlgorithm selects how {@link AwsSigningInterceptor} signs requests.
+ */
+public enum SigningAlgorithm {
+    /**
+     * SigV4: HMAC-SHA256 with a key derived for one region, service and day.
+     */
+    SIGV4,
+    /**
+     * SigV4A: ECDSA P-256 with a key pair derived from the credentials, valid for a set of regions,
+     * as required by multi-region access points.
+     * See: https://docs.aws.amazon.com/IAM/latest/UserGuide/reference_sigv.html
+     */
+    SIGV4A
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import java.time.ZonedDateTime;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * SigningClock hands out the current {@link SigningTime}.
+ * <p>
+ * Signatures only have a resolution of one second, so the formatted timestamps are cached and
+ * only formatted again when the second changes, and the date stamp only when the day changes.
+ * <p>
+ * A skew offset can be set to make up for a local clock that is off from the clock of the server.
+ */
+final class SigningClock {
+    private final LongSupplier epochSeconds;
+    private volatile SigningTime last;
+    // skewSeconds is added to the local clock, it is server time minus local time
+    private volatile long skewSeconds;
+
+    SigningClock(LongSupplier epochSeconds) {
+        this.epochSeconds = epochSeconds;
+    }
+
+    static SigningClock system() {
+        return new SigningClock(() -> System.currentTimeMillis() / 1000);
+    }
+
+    static SigningClock of(Supplier<ZonedDateTime> clock) {
+        return new SigningClock(() -> clock.get().toEpochSecond());
+    }
+
+    SigningTime now() {
+        long epochSecond = epochSeconds.getAsLong() + skewSeconds;
+        SigningTime time = last;
+        if (time != null && time.epochSecond == epochSecond) {
+            return time;
+        }
+        time = time == null ? SigningTime.ofEpochSecond(epochSecond) : time.next(epochSecond);
+        last = time;
+        return time;
+    }
+
+    long skewSeconds() {
+        return skewSeconds;
+    }
+
+    // adjustSkew sets the skew offset so that this clock agrees with serverEpochSecond,
+    // and returns the new offset
+    long adjustSkew(long serverEpochSecond) {
+        long skew = serverEpochSecond - epochSeconds.getAsLong();
+        skewSeconds = skew;
+        return skew;
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.HmacSha256;
+import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Objects;
+
+/**
+ * SigningContext holds everything about a signature that only changes once a day:
+ * the derived signing key, the credential scope and the start of the Authorization header.
+ * <p>
+ * See: https://docs.aws.amazon.com/general/latest/gr/sigv4-calculate-signature.html
+ */
+final class SigningContext {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    final String accessKey;
+    final String secretKey;
+    final long epochDay;
+    final String dateStamp;
+    final String region;
+    final String service;
+    // credentialScope is "<date>/<region>/<service>/aws4_request"
+    final String credentialScope;
+    // authorizationPrefix is "AWS4-HMAC-SHA256 Credential=<accessKey>/<credentialScope>, SignedHeaders="
+    final String authorizationPrefix;
+    final byte[] signingKey;
+    // signingMac is keyed with signingKey, ready to be cloned for each signature
+    final HmacSha256 signingMac;
+
+    SigningContext(String accessKey, String secretKey, LocalDate date, String region, String service, byte[] signingKey) {
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.epochDay = date.toEpochDay();
+        this.dateStamp = DATE_FORMAT.format(date);
+        this.region = region;
+        this.service = service;
+        this.credentialScope = dateStamp + '/' + region + '/' + service + "/aws4_request";
+        this.authorizationPrefix = "AWS4-HMAC-SHA256 Credential=" + accessKey + '/' + credentialScope + ", SignedHeaders=";
+        this.signingKey = signingKey;
+        this.signingMac = HmacSha256.forKey(signingKey);
+    }
+
+    static SigningContext derive(String accessKey, String secretKey, LocalDate date, String region, String service) {
+        ZonedDateTime startOfDay = date.atStartOfDay(ZoneOffset.UTC);
+        byte[] signingKey = Tools.getSignatureKey(secretKey, startOfDay, region, service);
+        return new SigningContext(accessKey, secretKey, date, region, service, signingKey);
+    }
+
+    boolean matches(long epochDay, String accessKey, String secretKey) {
+        return this.epochDay == epochDay
+                && Objects.equals(this.accessKey, accessKey)
+                && Objects.equals(this.secretKey, secretKey);
+    }
+}
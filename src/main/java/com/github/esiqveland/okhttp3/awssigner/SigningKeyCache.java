@@ -0,0 +1,115 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SigningKeyCache keeps the {@link SigningContext} for the current UTC day.
+ * <p>
+ * The signing key only changes when the date, the region, the service or the credentials change,
+ * so deriving it for every request is wasted work. Contexts are swapped atomically, and the
+ * context for the next day is derived ahead of time during the last minute before UTC midnight,
+ * so that requests in flight at midnight do not all miss at once.
+ */
+final class SigningKeyCache {
+    static final long PRECOMPUTE_WINDOW_SECONDS = 60;
+    private static final long SECONDS_PER_DAY = SigningTime.SECONDS_PER_DAY;
+
+    private final String region;
+    private final String service;
+    private final SigningListener listener;
+
+    private final AtomicReference<SigningContext> current = new AtomicReference<>();
+    private final AtomicReference<SigningContext> next = new AtomicReference<>();
+    private final AtomicBoolean precomputing = new AtomicBoolean(false);
+
+    SigningKeyCache(String region, String service) {
+        this(region, service, SigningListener.NOOP);
+    }
+
+    SigningKeyCache(String region, String service, SigningListener listener) {
+        this.region = region;
+        this.service = service;
+        this.listener = listener;
+    }
+
+    SigningContext get(String accessKey, String secretKey, SigningTime time) {
+        return get(accessKey, secretKey, time, listener);
+    }
+
+    // get reports to the given listener instead of the one of the cache, so work that is not
+    // on behalf of a request, like a warm-up, can be kept out of the metrics.
+    SigningContext get(String accessKey, String secretKey, SigningTime time, SigningListener listener) {
+        long epochDay = time.epochDay;
+
+        SigningContext ctx = current.get();
+        boolean hit = ctx != null && ctx.matches(epochDay, accessKey, secretKey);
+        if (!hit) {
+            SigningContext precomputed = next.get();
+            hit = precomputed != null && precomputed.matches(epochDay, accessKey, secretKey);
+            if (hit) {
+                ctx = precomputed;
+            } else {
+                ctx = derive(accessKey, secretKey, epochDay, listener);
+            }
+            current.set(ctx);
+        }
+        listener.cacheAccessed(SigningListener.SIGNING_KEY_CACHE, hit);
+
+        long secondsUntilMidnight = SECONDS_PER_DAY - Math.floorMod(time.epochSecond, SECONDS_PER_DAY);
+        if (secondsUntilMidnight <= PRECOMPUTE_WINDOW_SECONDS) {
+            precompute(accessKey, secretKey, epochDay + 1, listener);
+        }
+
+        return ctx;
+    }
+
+    // precompute derives the context for the given day, unless it is already present.
+    // Only one thread does the work, the others carry on with the current context.
+    private void precompute(String accessKey, String secretKey, long epochDay, SigningListener listener) {
+        SigningContext precomputed = next.get();
+        if (precomputed != null && precomputed.matches(epochDay, accessKey, secretKey)) {
+            return;
+        }
+        if (!precomputing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            next.set(derive(accessKey, secretKey, epochDay, listener));
+        } finally {
+            precomputing.set(false);
+        }
+    }
+
+    private SigningContext derive(String accessKey, String secretKey, long epochDay, SigningListener listener) {
+        boolean measure = listener != SigningListener.NOOP;
+        long start = measure ? System.nanoTime() : 0;
+        SigningContext ctx = SigningContext.derive(accessKey, secretKey, LocalDate.ofEpochDay(epochDay), region, service);
+        if (measure) {
+            listener.signingKeyDerived(System.nanoTime() - start);
+        }
+        return ctx;
+    }
+
+    // used by tests
+    SigningContext precomputed() {
+        return next.get();
+    }
+}
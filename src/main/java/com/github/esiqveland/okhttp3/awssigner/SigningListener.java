@@ -0,0 +1,93 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+/**
+ * SigningListener is told how long each phase of signing a request takes, for bridging into a metrics system.
+ * <p>
+ * Methods are called on the thread signing the request, so they must be fast and must not throw.
+ * All methods do nothing by default. With the default {@link #NOOP} listener the interceptor
+ * does not read the clock at all.
+ */
+public interface SigningListener {
+    SigningListener NOOP = new SigningListener() {
+    };
+
+    // SIGNING_KEY_CACHE is the cache of derived signing keys, one per day and credentials
+    String SIGNING_KEY_CACHE = "signing-key";
+    // SIGNATURE_CACHE is the cache of Authorization headers for identical requests within one second
+    String SIGNATURE_CACHE = "signature";
+    // CANONICAL_URL_CACHE is the cache of canonical paths and query strings of urls
+    String CANONICAL_URL_CACHE = "canonical-url";
+
+    /**
+     * A signing key was derived from the secret key, because it was not cached.
+     */
+    default void signingKeyDerived(long nanos) {
+    }
+
+    /**
+     * A cache was looked up.
+     *
+     * @param cache name of the cache, such as {@link #SIGNING_KEY_CACHE}
+     * @param hit   true if the value was found in the cache
+     */
+    default void cacheAccessed(String cache, boolean hit) {
+    }
+
+    /**
+     * The request body was hashed for the payload hash.
+     *
+     * @param bytes number of body bytes hashed
+     */
+    default void payloadHashed(long bytes, long nanos) {
+    }
+
+    /**
+     * The canonical request was built and hashed.
+     */
+    default void canonicalRequestBuilt(long nanos) {
+    }
+
+    /**
+     * The string to sign was built and signed with the configured signing algorithm.
+     */
+    default void signatureComputed(long nanos) {
+    }
+
+    /**
+     * A request was signed, including all of the phases above.
+     */
+    default void requestSigned(long nanos) {
+    }
+
+    /**
+     * The server rejected a request because the local clock is off, and the signing clock was corrected.
+     *
+     * @param skewSeconds the new offset added to the local clock, server time minus local time
+     * @param retried     true if the request was signed again and retried
+     */
+    default void clockSkewCorrected(long skewSeconds, boolean retried) {
+    }
+
+    /**
+     * {@link AwsSigningInterceptor#warmUp} finished signing its synthetic requests.
+     *
+     * @param requests number of requests signed
+     */
+    default void warmedUp(int requests, long nanos) {
+    }
+}
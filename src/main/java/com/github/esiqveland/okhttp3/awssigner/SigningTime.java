@@ -0,0 +1,83 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner;
+
+import java.time.LocalDate;
+
+/**
+ * SigningTime is a point in time with a resolution of one second, together with
+ * its X-Amz-Date ("yyyyMMdd'T'HHmmss'Z'") and date stamp ("yyyyMMdd") representations in UTC.
+ */
+final class SigningTime {
+    static final long SECONDS_PER_DAY = 24 * 60 * 60;
+
+    final long epochSecond;
+    final long epochDay;
+    // amzDate is formatted as yyyyMMdd'T'HHmmss'Z'
+    final String amzDate;
+    // dateStamp is formatted as yyyyMMdd
+    final String dateStamp;
+
+    private SigningTime(long epochSecond, long epochDay, String amzDate, String dateStamp) {
+        this.epochSecond = epochSecond;
+        this.epochDay = epochDay;
+        this.amzDate = amzDate;
+        this.dateStamp = dateStamp;
+    }
+
+    static SigningTime ofEpochSecond(long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+
+        char[] chars = new char[8];
+        putDigits(chars, 0, date.getYear(), 4);
+        putDigits(chars, 4, date.getMonthValue(), 2);
+        putDigits(chars, 6, date.getDayOfMonth(), 2);
+
+        return ofEpochSecond(epochSecond, epochDay, new String(chars));
+    }
+
+    // next returns the SigningTime for epochSecond, reusing the date stamp of this one when the day is the same
+    SigningTime next(long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        if (epochDay != this.epochDay) {
+            return ofEpochSecond(epochSecond);
+        }
+        return ofEpochSecond(epochSecond, epochDay, dateStamp);
+    }
+
+    private static SigningTime ofEpochSecond(long epochSecond, long epochDay, String dateStamp) {
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        char[] chars = new char[16];
+        dateStamp.getChars(0, 8, chars, 0);
+        chars[8] = 'T';
+        putDigits(chars, 9, secondOfDay / 3600, 2);
+        putDigits(chars, 11, (secondOfDay / 60) % 60, 2);
+        putDigits(chars, 13, secondOfDay % 60, 2);
+        chars[15] = 'Z';
+
+        return new SigningTime(epochSecond, epochDay, new String(chars), dateStamp);
+    }
+
+    private static void putDigits(char[] chars, int offset, int value, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * SpooledRequestBody is a copy of a body that may only be written once, made while the body is hashed,
+ * so that the body can be signed and still be sent.
+ * <p>
+ * The copy is kept in memory up to a threshold. Beyond that it is spilled to a temporary file and replayed
+ * from disk, so the heap used per request stays bounded whatever the size of the payload.
+ * The file is deleted by {@link #release()}, after the request is done.
+ */
+final class SpooledRequestBody extends RequestBody {
+    private final MediaType contentType;
+    private final long contentLength;
+    private final String sha256Hex;
+    // exactly one of memory and file holds the body
+    private final Buffer memory;
+    private final File file;
+    private volatile boolean released;
+
+    private SpooledRequestBody(MediaType contentType, long contentLength, String sha256Hex, Buffer memory, File file) {
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.sha256Hex = sha256Hex;
+        this.memory = memory;
+        this.file = file;
+    }
+
+    /**
+     * spool writes body once, hashing it and keeping a copy to send.
+     *
+     * @param memoryThreshold the number of bytes kept in memory before the body is spilled to a file
+     * @param directory       where to create the file, null for the default temporary directory
+     */
+    static SpooledRequestBody spool(RequestBody body, long memoryThreshold, File directory) throws IOException {
+        SpillingSink spilling = new SpillingSink(memoryThreshold, directory);
+        HashingSink hashing = HashingSink.sha256(spilling);
+        try {
+            BufferedSink sink = Okio.buffer(hashing);
+            body.writeTo(sink);
+            sink.close();
+        } catch (IOException | RuntimeException e) {
+            spilling.delete();
+            throw e;
+        }
+        return new SpooledRequestBody(
+                body.contentType(),
+                spilling.size,
+                hashing.hash().hex(),
+                spilling.file == null ? spilling.memory : null,
+                spilling.file
+        );
+    }
+
+    // sha256Hex returns the lowercase hex encoded SHA-256 of the body
+    String sha256Hex() {
+        return sha256Hex;
+    }
+
+    // spilled is true if the body was written to a file
+    boolean spilled() {
+        return file != null;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return contentType;
+    }
+
+    @Override
+    public long contentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        if (released) {
+            throw new IOException("spooled body was released after its request was done");
+        }
+        if (file == null) {
+            memory.copyTo(sink.buffer(), 0, memory.size());
+            sink.emitCompleteSegments();
+            return;
+        }
+        try (Source source = Okio.source(file)) {
+            sink.writeAll(source);
+        }
+    }
+
+    // release frees the copy of the body, and deletes the file it was spilled to
+    void release() {
+        released = true;
+        if (memory != null) {
+            memory.clear();
+        }
+        if (file != null && !file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    // SpillingSink keeps what is written in memory, until it grows beyond the threshold and moves to a file
+    private static final class SpillingSink implements Sink {
+        private final long memoryThreshold;
+        private final File directory;
+        final Buffer memory = new Buffer();
+        File file;
+        private Sink fileSink;
+        long size;
+
+        SpillingSink(long memoryThreshold, File directory) {
+            this.memoryThreshold = memoryThreshold;
+            this.directory = directory;
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            size += byteCount;
+            if (fileSink == null && size <= memoryThreshold) {
+                memory.write(source, byteCount);
+                return;
+            }
+            if (fileSink == null) {
+                file = File.createTempFile("aws-signing-", ".body", directory);
+                fileSink = Okio.sink(file);
+                fileSink.write(memory, memory.size());
+            }
+            fileSink.write(source, byteCount);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (fileSink != null) {
+                fileSink.flush();
+            }
+        }
+
+        @Override
+        public Timeout timeout() {
+            return Timeout.NONE;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileSink != null) {
+                fileSink.close();
+            }
+        }
+
+        void delete() {
+            memory.clear();
+            try {
+                close();
+            } catch (IOException ignored) {
+                // the file is deleted anyway
+            }
+            if (file != null) {
+                file.delete();
+            }
+        }
+    }
+}
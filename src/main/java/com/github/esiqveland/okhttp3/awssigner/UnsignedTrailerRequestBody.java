@@ -0,0 +1,180 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Sink;
+import okio.Timeout;
+
+import java.io.IOException;
+import java.util.Base64;
+
+/**
+ * UnsignedTrailerRequestBody sends a body in aws-chunked encoding with a checksum trailer,
+ * signed as STREAMING-UNSIGNED-PAYLOAD-TRAILER.
+ * <p>
+ * Wrap the body of a request with this class, and {@link AwsSigningInterceptor} signs the request
+ * without reading the payload. The checksum is computed while the body is written to the network
+ * and sent in a x-amz-checksum-* trailer after the last chunk, so the body is only read once
+ * and S3 still verifies it end to end.
+ * <p>
+ * S3 needs to know the decoded length of the payload, so the wrapped body should have a known length.
+ * <p>
+ * See: https://docs.aws.amazon.com/AmazonS3/latest/API/sigv4-streaming.html
+ */
+public class UnsignedTrailerRequestBody extends RequestBody {
+    private static final int CRLF_LENGTH = 2;
+
+    private final RequestBody delegate;
+    private final ChecksumAlgorithm algorithm;
+    private final int chunkSize;
+
+    public UnsignedTrailerRequestBody(RequestBody delegate, ChecksumAlgorithm algorithm) {
+        this(delegate, algorithm, AwsChunkedRequestBody.DEFAULT_CHUNK_SIZE);
+    }
+
+    public UnsignedTrailerRequestBody(RequestBody delegate, ChecksumAlgorithm algorithm, int chunkSize) {
+        if (delegate == null) {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        if (algorithm == null) {
+            throw new IllegalArgumentException("algorithm must not be null");
+        }
+        if (chunkSize < AwsChunkedRequestBody.MIN_CHUNK_SIZE) {
+            throw new IllegalArgumentException("chunkSize must be at least " + AwsChunkedRequestBody.MIN_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.delegate = delegate;
+        this.algorithm = algorithm;
+        this.chunkSize = chunkSize;
+    }
+
+    public ChecksumAlgorithm algorithm() {
+        return algorithm;
+    }
+
+    /**
+     * @return the length of the wrapped body, or -1 if it is not known
+     * @throws IOException if the wrapped body fails to report its length
+     */
+    public long decodedContentLength() throws IOException {
+        return delegate.contentLength();
+    }
+
+    @Override
+    public MediaType contentType() {
+        return delegate.contentType();
+    }
+
+    @Override
+    public long contentLength() throws IOException {
+        long decodedLength = delegate.contentLength();
+        if (decodedLength == -1) {
+            return -1;
+        }
+        long fullChunks = decodedLength / chunkSize;
+        long remainder = decodedLength % chunkSize;
+        long length = fullChunks * encodedChunkLength(chunkSize);
+        if (remainder > 0) {
+            length += encodedChunkLength(remainder);
+        }
+        // "0\r\n" + name + ":" + checksum + "\r\n" + "\r\n"
+        return length + 1 + CRLF_LENGTH
+                + algorithm.headerName.length() + 1 + algorithm.base64Length() + CRLF_LENGTH
+                + CRLF_LENGTH;
+    }
+
+    private static long encodedChunkLength(long dataLength) {
+        return Long.toHexString(dataLength).length() + CRLF_LENGTH + dataLength + CRLF_LENGTH;
+    }
+
+    @Override
+    public void writeTo(BufferedSink sink) throws IOException {
+        ChunkingSink chunkingSink = new ChunkingSink(sink, algorithm.newChecksum(), chunkSize);
+        BufferedSink bufferedSink = Okio.buffer(chunkingSink);
+        delegate.writeTo(bufferedSink);
+        bufferedSink.emit();
+        chunkingSink.finish(algorithm.headerName);
+    }
+
+    // ChunkingSink cuts everything written to it into chunks of chunkSize, updating the checksum as it goes
+    private static class ChunkingSink implements Sink {
+        private final BufferedSink out;
+        private final ChecksumAlgorithm.RunningChecksum checksum;
+        private final byte[] chunk;
+        private int size = 0;
+
+        ChunkingSink(BufferedSink out, ChecksumAlgorithm.RunningChecksum checksum, int chunkSize) {
+            this.out = out;
+            this.checksum = checksum;
+            this.chunk = new byte[chunkSize];
+        }
+
+        @Override
+        public void write(Buffer source, long byteCount) throws IOException {
+            while (byteCount > 0) {
+                int toCopy = (int) Math.min(byteCount, chunk.length - size);
+                int read = source.read(chunk, size, toCopy);
+                size += read;
+                byteCount -= read;
+                if (size == chunk.length) {
+                    writeChunk();
+                }
+            }
+        }
+
+        // finish writes the last partial chunk, if any, the final empty chunk and the trailer
+        void finish(String trailerName) throws IOException {
+            if (size > 0) {
+                writeChunk();
+            }
+            byte[] value = Base64.getEncoder().encode(checksum.value());
+            out.writeUtf8("0\r\n")
+                    .writeUtf8(trailerName)
+                    .writeByte(':')
+                    .write(value)
+                    .writeUtf8("\r\n\r\n");
+            out.flush();
+        }
+
+        private void writeChunk() throws IOException {
+            checksum.update(chunk, 0, size);
+            out.writeUtf8(Integer.toHexString(size)).writeUtf8("\r\n");
+            out.write(chunk, 0, size);
+            out.writeUtf8("\r\n");
+            size = 0;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // chunks have a fixed size, so a partial chunk is never flushed early
+            out.flush();
+        }
+
+        @Override
+        public Timeout timeout() {
+            return out.timeout();
+        }
+
+        @Override
+        public void close() {
+            // the caller owns out
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import java.time.Instant;
+
+/**
+ * AwsCredentials is an access key pair, optionally with the session token and expiration of temporary credentials.
+ */
+public final class AwsCredentials {
+    public final String accessKeyId;
+    public final String secretAccessKey;
+    // sessionToken is null for long-term credentials
+    public final String sessionToken;
+    // expiration is null for credentials that do not expire
+    public final Instant expiration;
+
+    public AwsCredentials(String accessKeyId, String secretAccessKey) {
+        this(accessKeyId, secretAccessKey, null, null);
+    }
+
+    public AwsCredentials(String accessKeyId, String secretAccessKey, String sessionToken, Instant expiration) {
+        if (accessKeyId == null || accessKeyId.isEmpty()) {
+            throw new IllegalArgumentException("accessKeyId must not be empty");
+        }
+        if (secretAccessKey == null || secretAccessKey.isEmpty()) {
+            throw new IllegalArgumentException("secretAccessKey must not be empty");
+        }
+        this.accessKeyId = accessKeyId;
+        this.secretAccessKey = secretAccessKey;
+        this.sessionToken = sessionToken;
+        this.expiration = expiration;
+    }
+
+    @Override
+    public String toString() {
+        // never print the secrets
+        return "AwsCredentials{accessKeyId=" + accessKeyId + ", expiration=" + expiration + "}";
+    }
+}
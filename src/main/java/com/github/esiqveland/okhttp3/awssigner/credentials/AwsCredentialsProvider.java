@@ -0,0 +1,37 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import java.io.IOException;
+
+/**
+ * AwsCredentialsProvider supplies the credentials used to sign each request.
+ * <p>
+ * It is called on the request path for every request, so implementations that load credentials
+ * from somewhere slow should be wrapped in a {@link RefreshingCredentialsProvider}.
+ */
+@FunctionalInterface
+public interface AwsCredentialsProvider {
+
+    AwsCredentials getCredentials() throws IOException;
+
+    static AwsCredentialsProvider of(AwsCredentials credentials) {
+        if (credentials == null) {
+            throw new IllegalArgumentException("credentials must not be null");
+        }
+        return () -> credentials;
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+
+/**
+ * ContainerCredentialsProvider fetches temporary credentials from a local credentials endpoint,
+ * such as the one ECS provides to containers:
+ * <pre>
+ * {"AccessKeyId": "...", "SecretAccessKey": "...", "Token": "...", "Expiration": "2017-01-01T00:00:00Z"}
+ * </pre>
+ * Every call makes a HTTP request, so wrap it in a {@link RefreshingCredentialsProvider}.
+ * The client given must not itself sign requests with these credentials.
+ */
+public final class ContainerCredentialsProvider implements AwsCredentialsProvider {
+    static final String ECS_HOST = "http://169.254.170.2";
+
+    private final OkHttpClient client;
+    private final HttpUrl url;
+    // authorizationToken is sent as the Authorization header when not null
+    private final String authorizationToken;
+
+    public ContainerCredentialsProvider(OkHttpClient client, HttpUrl url, String authorizationToken) {
+        if (client == null) {
+            throw new IllegalArgumentException("client must not be null");
+        }
+        if (url == null) {
+            throw new IllegalArgumentException("url must not be null");
+        }
+        this.client = client;
+        this.url = url;
+        this.authorizationToken = authorizationToken;
+    }
+
+    // fromEnvironment uses AWS_CONTAINER_CREDENTIALS_FULL_URI or AWS_CONTAINER_CREDENTIALS_RELATIVE_URI,
+    // and AWS_CONTAINER_AUTHORIZATION_TOKEN, the way the AWS SDKs do.
+    public static ContainerCredentialsProvider fromEnvironment(OkHttpClient client) {
+        String fullUri = System.getenv("AWS_CONTAINER_CREDENTIALS_FULL_URI");
+        String relativeUri = System.getenv("AWS_CONTAINER_CREDENTIALS_RELATIVE_URI");
+        String uri;
+        if (relativeUri != null && !relativeUri.isEmpty()) {
+            uri = ECS_HOST + relativeUri;
+        } else if (fullUri != null && !fullUri.isEmpty()) {
+            uri = fullUri;
+        } else {
+            throw new IllegalStateException("neither AWS_CONTAINER_CREDENTIALS_RELATIVE_URI nor AWS_CONTAINER_CREDENTIALS_FULL_URI is set");
+        }
+        HttpUrl url = HttpUrl.parse(uri);
+        if (url == null) {
+            throw new IllegalStateException("invalid container credentials uri: " + uri);
+        }
+        return new ContainerCredentialsProvider(client, url, System.getenv("AWS_CONTAINER_AUTHORIZATION_TOKEN"));
+    }
+
+    @Override
+    public AwsCredentials getCredentials() throws IOException {
+        Request.Builder request = new Request.Builder()
+                .get()
+                .url(url)
+                .header("Accept", "application/json");
+        if (authorizationToken != null && !authorizationToken.isEmpty()) {
+            request.header("Authorization", authorizationToken);
+        }
+
+        try (Response response = client.newCall(request.build()).execute()) {
+            ResponseBody body = response.body();
+            if (!response.isSuccessful() || body == null) {
+                throw new IOException("fetching credentials from " + url + " failed: HTTP " + response.code());
+            }
+            return parse(body.string());
+        }
+    }
+
+    static AwsCredentials parse(String json) throws IOException {
+        String accessKeyId = stringField(json, "AccessKeyId");
+        String secretAccessKey = stringField(json, "SecretAccessKey");
+        if (accessKeyId == null || secretAccessKey == null) {
+            throw new IOException("credentials response has no AccessKeyId and SecretAccessKey");
+        }
+        String expiration = stringField(json, "Expiration");
+        try {
+            return new AwsCredentials(
+                    accessKeyId,
+                    secretAccessKey,
+                    stringField(json, "Token"),
+                    expiration == null ? null : Instant.parse(expiration)
+            );
+        } catch (DateTimeParseException e) {
+            throw new IOException("credentials response has an invalid Expiration: " + expiration, e);
+        }
+    }
+
+    // stringField finds the string value of a top level field in a flat JSON object.
+    // The credentials document is small and flat, which does not warrant a JSON library.
+    static String stringField(String json, String name) throws IOException {
+        String key = '"' + name + '"';
+        int index = json.indexOf(key);
+        while (index != -1) {
+            int i = skipWhitespace(json, index + key.length());
+            if (i < json.length() && json.charAt(i) == ':') {
+                i = skipWhitespace(json, i + 1);
+                if (i < json.length() && json.charAt(i) == '"') {
+                    return readString(json, i + 1);
+                }
+                if (json.startsWith("null", i)) {
+                    return null;
+                }
+                throw new IOException("field " + name + " is not a string");
+            }
+            index = json.indexOf(key, index + 1);
+        }
+        return null;
+    }
+
+    private static int skipWhitespace(String json, int i) {
+        while (i < json.length() && Character.isWhitespace(json.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String readString(String json, int start) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        for (int i = start; i < json.length(); i++) {
+            char c = json.charAt(i);
+            if (c == '"') {
+                return sb.toString();
+            }
+            if (c != '\\') {
+                sb.append(c);
+                continue;
+            }
+            if (++i == json.length()) {
+                break;
+            }
+            char escaped = json.charAt(i);
+            switch (escaped) {
+                case 'n':
+                    sb.append('\n');
+                    break;
+                case 't':
+                    sb.append('\t');
+                    break;
+                case 'r':
+                    sb.append('\r');
+                    break;
+                case 'b':
+                    sb.append('\b');
+                    break;
+                case 'f':
+                    sb.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= json.length()) {
+                        throw new IOException("invalid unicode escape in credentials response");
+                    }
+                    try {
+                        sb.append((char) Integer.parseInt(json.substring(i + 1, i + 5), 16));
+                    } catch (NumberFormatException e) {
+                        throw new IOException("invalid unicode escape in credentials response", e);
+                    }
+                    i += 4;
+                    break;
+                default:
+                    // \", \\ and \/
+                    sb.append(escaped);
+            }
+        }
+        throw new IOException("unterminated string in credentials response");
+    }
+}
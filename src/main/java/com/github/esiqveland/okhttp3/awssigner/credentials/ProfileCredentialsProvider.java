@@ -0,0 +1,126 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ProfileCredentialsProvider reads credentials from a profile in a shared credentials file,
+ * by default ~/.aws/credentials:
+ * <pre>
+ * [default]
+ * aws_access_key_id = AKIDEXAMPLE
+ * aws_secret_access_key = wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY
+ * aws_session_token = ...
+ * </pre>
+ * The file is parsed again only when its modification time changes, so credentials rotated
+ * into the file are picked up without rebuilding the client.
+ */
+public final class ProfileCredentialsProvider implements AwsCredentialsProvider {
+    private final Path file;
+    private final String profile;
+    private volatile Loaded loaded;
+
+    public ProfileCredentialsProvider(Path file, String profile) {
+        if (file == null) {
+            throw new IllegalArgumentException("file must not be null");
+        }
+        if (profile == null || profile.isEmpty()) {
+            throw new IllegalArgumentException("profile must not be empty");
+        }
+        this.file = file;
+        this.profile = profile;
+    }
+
+    // create uses the file and profile given by AWS_SHARED_CREDENTIALS_FILE and AWS_PROFILE,
+    // defaulting to the "default" profile in ~/.aws/credentials
+    public static ProfileCredentialsProvider create() {
+        String file = System.getenv("AWS_SHARED_CREDENTIALS_FILE");
+        Path path = file == null || file.isEmpty()
+                ? Paths.get(System.getProperty("user.home"), ".aws", "credentials")
+                : Paths.get(file);
+        String profile = System.getenv("AWS_PROFILE");
+        return new ProfileCredentialsProvider(path, profile == null || profile.isEmpty() ? "default" : profile);
+    }
+
+    @Override
+    public AwsCredentials getCredentials() throws IOException {
+        long lastModified = Files.getLastModifiedTime(file).toMillis();
+        Loaded current = loaded;
+        if (current != null && current.lastModified == lastModified) {
+            return current.credentials;
+        }
+        AwsCredentials credentials = parse(Files.readAllLines(file, StandardCharsets.UTF_8));
+        loaded = new Loaded(lastModified, credentials);
+        return credentials;
+    }
+
+    private AwsCredentials parse(List<String> lines) throws IOException {
+        Map<String, String> properties = null;
+        Map<String, String> section = null;
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#") || line.startsWith(";")) {
+                continue;
+            }
+            if (line.startsWith("[") && line.endsWith("]")) {
+                String name = line.substring(1, line.length() - 1).trim();
+                // the config file prefixes profile names with "profile "
+                if (name.startsWith("profile ")) {
+                    name = name.substring("profile ".length()).trim();
+                }
+                if (name.equals(profile)) {
+                    properties = properties == null ? new HashMap<>() : properties;
+                    section = properties;
+                } else {
+                    section = null;
+                }
+                continue;
+            }
+            int equals = line.indexOf('=');
+            if (section != null && equals > 0) {
+                section.put(line.substring(0, equals).trim(), line.substring(equals + 1).trim());
+            }
+        }
+
+        if (properties == null) {
+            throw new IOException("profile " + profile + " not found in " + file);
+        }
+        String accessKeyId = properties.get("aws_access_key_id");
+        String secretAccessKey = properties.get("aws_secret_access_key");
+        if (accessKeyId == null || secretAccessKey == null) {
+            throw new IOException("profile " + profile + " in " + file + " has no aws_access_key_id and aws_secret_access_key");
+        }
+        return new AwsCredentials(accessKeyId, secretAccessKey, properties.get("aws_session_token"), null);
+    }
+
+    private static final class Loaded {
+        final long lastModified;
+        final AwsCredentials credentials;
+
+        Loaded(long lastModified, AwsCredentials credentials) {
+            this.lastModified = lastModified;
+            this.credentials = credentials;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * RefreshingCredentialsProvider caches the credentials of a slower provider and refreshes them
+ * in the background before they expire.
+ * <p>
+ * Signing threads only read an {@link AtomicReference}. A refresh is started by the first request
+ * that sees the credentials inside the refresh window, runs on the executor, and publishes the
+ * new credentials with a single swap. Requests only wait for a load when there are no usable
+ * credentials at all: on the first request, or after the credentials have expired.
+ * <p>
+ * A failed background refresh keeps the current credentials and is retried after {@link #RETRY_DELAY}.
+ * The failure is handed to the {@link Builder#refreshFailureHandler}, so refreshes that keep failing
+ * can be seen before the credentials expire.
+ */
+public final class RefreshingCredentialsProvider implements AwsCredentialsProvider {
+    public static final Duration DEFAULT_REFRESH_AHEAD = Duration.ofMinutes(5);
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofMinutes(15);
+    static final Duration RETRY_DELAY = Duration.ofSeconds(10);
+
+    private final AwsCredentialsProvider source;
+    private final long refreshAheadMillis;
+    private final long refreshIntervalMillis;
+    private final Executor executor;
+    private final Consumer<? super Exception> refreshFailureHandler;
+    private final Clock clock;
+
+    private final AtomicReference<Entry> current = new AtomicReference<>();
+    private final AtomicBoolean refreshing = new AtomicBoolean(false);
+    // loadLock is a ReentrantLock rather than a monitor, so a virtual thread waiting on a slow
+    // source does not pin its carrier thread
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private RefreshingCredentialsProvider(Builder builder) {
+        this.source = builder.source;
+        this.refreshAheadMillis = builder.refreshAhead.toMillis();
+        this.refreshIntervalMillis = builder.refreshInterval.toMillis();
+        this.executor = builder.executor;
+        this.refreshFailureHandler = builder.refreshFailureHandler;
+        this.clock = builder.clock;
+    }
+
+    public static Builder builder(AwsCredentialsProvider source) {
+        return new Builder(source);
+    }
+
+    @Override
+    public AwsCredentials getCredentials() throws IOException {
+        long now = clock.millis();
+        Entry entry = current.get();
+        if (entry == null || now >= entry.expiresAt) {
+            return loadNow(now).credentials;
+        }
+        if (now >= entry.refreshAt) {
+            refreshInBackground(entry);
+        }
+        return entry.credentials;
+    }
+
+    // loadNow blocks until there are usable credentials. Only one thread loads, the others wait for it.
+    private Entry loadNow(long now) throws IOException {
+        loadLock.lock();
+        try {
+            Entry entry = current.get();
+            if (entry != null && now < entry.expiresAt) {
+                return entry;
+            }
+            entry = entryFor(source.getCredentials(), clock.millis());
+            current.set(entry);
+            return entry;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    private void refreshInBackground(Entry stale) {
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    current.set(entryFor(source.getCredentials(), clock.millis()));
+                } catch (Exception e) {
+                    // keep the credentials we have until they expire, and try again a bit later
+                    current.compareAndSet(stale, stale.retryAt(clock.millis() + RETRY_DELAY.toMillis()));
+                    refreshFailureHandler.accept(e);
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            refreshing.set(false);
+        }
+    }
+
+    private Entry entryFor(AwsCredentials credentials, long now) throws IOException {
+        if (credentials == null) {
+            throw new IOException("credentials provider returned no credentials");
+        }
+        if (credentials.expiration == null) {
+            return new Entry(credentials, now + refreshIntervalMillis, Long.MAX_VALUE);
+        }
+        long expiresAt = credentials.expiration.toEpochMilli();
+        long refreshAt = expiresAt - refreshAheadMillis;
+        if (refreshAt <= now) {
+            // short lived credentials: refresh halfway to expiry instead of on every request
+            refreshAt = now + (expiresAt - now) / 2;
+        }
+        return new Entry(credentials, refreshAt, expiresAt);
+    }
+
+    private static final class Entry {
+        final AwsCredentials credentials;
+        final long refreshAt;
+        final long expiresAt;
+
+        Entry(AwsCredentials credentials, long refreshAt, long expiresAt) {
+            this.credentials = credentials;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+
+        Entry retryAt(long refreshAt) {
+            return new Entry(credentials, Math.min(refreshAt, expiresAt), expiresAt);
+        }
+    }
+
+    public static class Builder {
+        private final AwsCredentialsProvider source;
+        private Duration refreshAhead = DEFAULT_REFRESH_AHEAD;
+        private Duration refreshInterval = DEFAULT_REFRESH_INTERVAL;
+        private Executor executor = RefreshingCredentialsProvider::startDaemonThread;
+        private Consumer<? super Exception> refreshFailureHandler = e -> {
+        };
+        private Clock clock = Clock.systemUTC();
+
+        private Builder(AwsCredentialsProvider source) {
+            if (source == null) {
+                throw new IllegalArgumentException("source must not be null");
+            }
+            this.source = source;
+        }
+
+        // refreshAhead is how long before expiration a background refresh is started
+        public Builder refreshAhead(Duration refreshAhead) {
+            if (refreshAhead == null || refreshAhead.isNegative()) {
+                throw new IllegalArgumentException("refreshAhead must not be negative: " + refreshAhead);
+            }
+            this.refreshAhead = refreshAhead;
+            return this;
+        }
+
+        // refreshInterval is how often credentials without an expiration are reloaded
+        public Builder refreshInterval(Duration refreshInterval) {
+            if (refreshInterval == null || refreshInterval.isNegative() || refreshInterval.isZero()) {
+                throw new IllegalArgumentException("refreshInterval must be positive: " + refreshInterval);
+            }
+            this.refreshInterval = refreshInterval;
+            return this;
+        }
+
+        // executor runs background refreshes. By default each refresh gets its own short lived daemon thread.
+        public Builder executor(Executor executor) {
+            if (executor == null) {
+                throw new IllegalArgumentException("executor must not be null");
+            }
+            this.executor = executor;
+            return this;
+        }
+
+        // refreshFailureHandler is given the exception of every failed background refresh, for logging or metrics.
+        // Failed loads that requests wait for are thrown to the request instead.
+        public Builder refreshFailureHandler(Consumer<? super Exception> refreshFailureHandler) {
+            if (refreshFailureHandler == null) {
+                throw new IllegalArgumentException("refreshFailureHandler must not be null");
+            }
+            this.refreshFailureHandler = refreshFailureHandler;
+            return this;
+        }
+
+        public Builder clock(Clock clock) {
+            if (clock == null) {
+                throw new IllegalArgumentException("clock must not be null");
+            }
+            this.clock = clock;
+            return this;
+        }
+
+        public RefreshingCredentialsProvider build() {
+            return new RefreshingCredentialsProvider(this);
+        }
+    }
+
+    private static void startDaemonThread(Runnable task) {
+        Thread thread = new Thread(task, "aws-credentials-refresh");
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
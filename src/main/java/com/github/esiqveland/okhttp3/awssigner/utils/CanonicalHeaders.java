@@ -0,0 +1,174 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.Headers;
+
+import java.util.Locale;
+
+/**
+ * CanonicalHeaders is the CanonicalHeaders and SignedHeaders parts of a canonical request,
+ * built in a single pass over the request headers.
+ * <p>
+ * Header names are lowercased and sorted by character code, values of repeated headers are joined
+ * with ',' in the order they appear, and values are trimmed with runs of whitespace collapsed to one space.
+ * <p>
+ * See: https://docs.aws.amazon.com/general/latest/gr/sigv4-create-canonical-request.html
+ */
+public final class CanonicalHeaders {
+    // canonicalHeaders is every "name:value" line, separated but not terminated by '\n'
+    public final String canonicalHeaders;
+    // signedHeaders is every header name, separated by ';'
+    public final String signedHeaders;
+
+    private CanonicalHeaders(String canonicalHeaders, String signedHeaders) {
+        this.canonicalHeaders = canonicalHeaders;
+        this.signedHeaders = signedHeaders;
+    }
+
+    public static CanonicalHeaders of(Headers headers) {
+        return of(headers, null, null);
+    }
+
+    /**
+     * @param headers       the request headers
+     * @param overrideName  lowercase name of a header to replace, or null
+     * @param overrideValue the value to use instead of the values of overrideName in headers
+     * @return the canonical form of the headers
+     */
+    public static CanonicalHeaders of(Headers headers, String overrideName, String overrideValue) {
+        int size = headers.size();
+        String[] names = new String[size + 1];
+        String[] values = new String[size + 1];
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            String name = lowerCaseAscii(headers.name(i));
+            if (name.equals(overrideName)) {
+                continue;
+            }
+            names[count] = name;
+            values[count] = headers.value(i);
+            count++;
+        }
+        if (overrideName != null) {
+            names[count] = overrideName;
+            values[count] = overrideValue;
+            count++;
+        }
+
+        // insertion sort is stable, which keeps repeated headers in the order they appear
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            int j = i;
+            while (j > 0 && names[order[j - 1]].compareTo(names[i]) > 0) {
+                order[j] = order[j - 1];
+                j--;
+            }
+            order[j] = i;
+        }
+
+        StringBuilder canonical = new StringBuilder(count * 32);
+        StringBuilder signed = new StringBuilder(count * 16);
+        String previous = null;
+        for (int i = 0; i < count; i++) {
+            String name = names[order[i]];
+            if (name.equals(previous)) {
+                canonical.append(',');
+            } else {
+                if (previous != null) {
+                    canonical.append('\n');
+                    signed.append(';');
+                }
+                canonical.append(name).append(':');
+                signed.append(name);
+                previous = name;
+            }
+            appendValue(canonical, values[order[i]]);
+        }
+
+        return new CanonicalHeaders(canonical.toString(), signed.toString());
+    }
+
+    /**
+     * appendValue appends value trimmed and with contiguous whitespace replaced by a single space,
+     * the same as {@link Utils#removeContiguousBlanks(String)} after {@link Utils#trim(String)}.
+     *
+     * @param sb    where to append the value
+     * @param value a header value
+     */
+    static void appendValue(StringBuilder sb, String value) {
+        int start = 0;
+        int end = value.length();
+        while (start < end && value.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && value.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        if (!needsCollapsing(value, start, end)) {
+            sb.append(value, start, end);
+            return;
+        }
+
+        boolean inWhitespace = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (!inWhitespace) {
+                    sb.append(' ');
+                    inWhitespace = true;
+                }
+            } else {
+                sb.append(c);
+                inWhitespace = false;
+            }
+        }
+    }
+
+    // needsCollapsing is true if the value has whitespace other than single spaces
+    private static boolean needsCollapsing(String value, int start, int end) {
+        boolean previousWasSpace = false;
+        for (int i = start; i < end; i++) {
+            char c = value.charAt(i);
+            if (isWhitespace(c)) {
+                if (c != ' ' || previousWasSpace) {
+                    return true;
+                }
+                previousWasSpace = true;
+            } else {
+                previousWasSpace = false;
+            }
+        }
+        return false;
+    }
+
+    // isWhitespace matches the same characters as \s in java.util.regex
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static String lowerCaseAscii(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                return name.toLowerCase(Locale.US);
+            }
+        }
+        return name;
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.HttpUrl;
+
+/**
+ * CanonicalPath builds the CanonicalURI part of a canonical request from the encoded path of a url,
+ * with repeated slashes collapsed into one.
+ * <p>
+ * S3 signs the path as it is sent. All other services expect each path segment to be URI-encoded
+ * once more, so that for example "%20" in the path is signed as "%2520".
+ * <p>
+ * See: https://docs.aws.amazon.com/IAM/latest/UserGuide/create-signed-request.html
+ */
+public final class CanonicalPath {
+    private CanonicalPath() {
+    }
+
+    public static String of(HttpUrl url) {
+        return of(url, false);
+    }
+
+    /**
+     * @param url          the url whose path to canonicalize
+     * @param doubleEncode true to URI-encode the already encoded path segments again
+     */
+    public static String of(HttpUrl url, boolean doubleEncode) {
+        String path = url.encodedPath();
+        if (path.isEmpty()) {
+            return "/";
+        }
+        if (isCanonical(path, doubleEncode)) {
+            return path;
+        }
+
+        StringBuilder sb = new StringBuilder(path.length() + 16);
+        int length = path.length();
+        int i = 0;
+        while (i < length) {
+            if (path.charAt(i) == '/') {
+                sb.append('/');
+                while (i < length && path.charAt(i) == '/') {
+                    i++;
+                }
+                continue;
+            }
+            int end = path.indexOf('/', i);
+            if (end == -1) {
+                end = length;
+            }
+            if (doubleEncode) {
+                CanonicalQueryString.encode(sb, path.substring(i, end));
+            } else {
+                sb.append(path, i, end);
+            }
+            i = end;
+        }
+        return sb.toString();
+    }
+
+    // isCanonical is true when path has no repeated slashes, and nothing to encode again if asked to
+    private static boolean isCanonical(String path, boolean doubleEncode) {
+        char previous = 0;
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '/' && previous == '/') {
+                return false;
+            }
+            if (doubleEncode && c != '/' && !CanonicalQueryString.isUnreserved(c)) {
+                return false;
+            }
+            previous = c;
+        }
+        return true;
+    }
+}
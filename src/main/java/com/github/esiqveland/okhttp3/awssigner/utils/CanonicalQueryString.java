@@ -0,0 +1,168 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.HttpUrl;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * CanonicalQueryString builds the CanonicalQueryString part of a canonical request.
+ * <p>
+ * Do not URI-encode any of the unreserved characters that RFC 3986 defines:
+ * A-Z, a-z, 0-9, hyphen ( - ), underscore ( _ ), period ( . ), and tilde ( ~ ).
+ * <p>
+ * Percent-encode all other characters with %XY, where X and Y are hexadecimal characters (0-9 and uppercase A-F).
+ * For example, the space character must be encoded as %20 (not using '+', as some encoding schemes do) and extended UTF-8 characters must be in the form %XY%ZA%BC.
+ * <p>
+ * Sort the parameter names by character code point in ascending order, and parameters with duplicate names by value.
+ * <p>
+ * See: https://docs.aws.amazon.com/general/latest/gr/sigv4-create-canonical-request.html
+ */
+public final class CanonicalQueryString {
+    private static final boolean[] UNRESERVED = new boolean[128];
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    // SEPARATOR sorts before every character that can appear in an encoded name,
+    // so sorting "name SEPARATOR value" sorts by name first and value second.
+    private static final char SEPARATOR = '\u0000';
+    private static final String[] NO_PARAMETERS = new String[0];
+
+    static {
+        for (char c = 'A'; c <= 'Z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = 'a'; c <= 'z'; c++) {
+            UNRESERVED[c] = true;
+        }
+        for (char c = '0'; c <= '9'; c++) {
+            UNRESERVED[c] = true;
+        }
+        UNRESERVED['-'] = true;
+        UNRESERVED['_'] = true;
+        UNRESERVED['.'] = true;
+        UNRESERVED['~'] = true;
+    }
+
+    private CanonicalQueryString() {
+    }
+
+    public static String of(HttpUrl url) {
+        return of(url, NO_PARAMETERS);
+    }
+
+    /**
+     * of builds the canonical query string of url with extra parameters added, without building a new url.
+     *
+     * @param url             the url whose query parameters to include
+     * @param extraParameters names and values of the extra parameters, alternating
+     */
+    public static String of(HttpUrl url, String... extraParameters) {
+        if ((extraParameters.length & 1) != 0) {
+            throw new IllegalArgumentException("extraParameters must be name and value pairs");
+        }
+        int urlParameters = url.querySize();
+        int querySize = urlParameters + extraParameters.length / 2;
+        if (querySize == 0) {
+            return "";
+        }
+
+        int length = 0;
+        String[] pairs = new String[querySize];
+        StringBuilder pair = new StringBuilder();
+        for (int i = 0; i < querySize; i++) {
+            String name;
+            String value;
+            if (i < urlParameters) {
+                name = url.queryParameterName(i);
+                value = url.queryParameterValue(i);
+            } else {
+                int extra = (i - urlParameters) * 2;
+                name = extraParameters[extra];
+                value = extraParameters[extra + 1];
+            }
+            pair.setLength(0);
+            encode(pair, name);
+            pair.append(SEPARATOR);
+            if (value != null) {
+                encode(pair, value);
+            }
+            pairs[i] = pair.toString();
+            length += pairs[i].length() + 1;
+        }
+
+        if (querySize > 1) {
+            Arrays.sort(pairs);
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < querySize; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            String encoded = pairs[i];
+            int separator = encoded.indexOf(SEPARATOR);
+            sb.append(encoded, 0, separator)
+                    .append('=')
+                    .append(encoded, separator + 1, encoded.length());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * encode appends s percent-encoded as described by the canonical request documentation.
+     *
+     * @param sb where to append the encoded string
+     * @param s  the string to encode
+     */
+    public static void encode(StringBuilder sb, String s) {
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 128) {
+                if (UNRESERVED[c]) {
+                    sb.append(c);
+                } else {
+                    appendEscaped(sb, c);
+                }
+            } else {
+                // extended characters are rare, encode the rest of the string through its UTF-8 bytes
+                byte[] bytes = s.substring(i).getBytes(StandardCharsets.UTF_8);
+                for (byte b : bytes) {
+                    int unsigned = b & 0xFF;
+                    if (unsigned < 128 && UNRESERVED[unsigned]) {
+                        sb.append((char) unsigned);
+                    } else {
+                        appendEscaped(sb, unsigned);
+                    }
+                }
+                return;
+            }
+        }
+    }
+
+    static boolean isUnreserved(char c) {
+        return c < 128 && UNRESERVED[c];
+    }
+
+    private static void appendEscaped(StringBuilder sb, int b) {
+        sb.append('%')
+                .append(HEX_UPPER[b >>> 4])
+                .append(HEX_UPPER[b & 0x0F]);
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import java.util.zip.Checksum;
+
+/**
+ * Crc32c computes CRC-32C (Castagnoli), as used for the x-amz-checksum-crc32c checksum.
+ * <p>
+ * java.util.zip.CRC32C only exists from Java 9, so this is a table driven implementation
+ * that processes eight bytes per step (slicing-by-8).
+ */
+public final class Crc32c implements Checksum {
+    // POLYNOMIAL is the reversed Castagnoli polynomial
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = tables();
+
+    private int crc = 0xFFFFFFFF;
+
+    private static int[][] tables() {
+        int[][] tables = new int[8][256];
+        for (int i = 0; i < 256; i++) {
+            int c = i;
+            for (int bit = 0; bit < 8; bit++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            tables[0][i] = c;
+        }
+        for (int i = 0; i < 256; i++) {
+            for (int t = 1; t < 8; t++) {
+                int previous = tables[t - 1][i];
+                tables[t][i] = (previous >>> 8) ^ tables[0][previous & 0xFF];
+            }
+        }
+        return tables;
+    }
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int[] t0 = TABLES[0], t1 = TABLES[1], t2 = TABLES[2], t3 = TABLES[3];
+        int[] t4 = TABLES[4], t5 = TABLES[5], t6 = TABLES[6], t7 = TABLES[7];
+        int c = crc;
+        int i = off;
+        int end = off + len;
+        for (; end - i >= 8; i += 8) {
+            int low = c ^ ((b[i] & 0xFF)
+                    | (b[i + 1] & 0xFF) << 8
+                    | (b[i + 2] & 0xFF) << 16
+                    | (b[i + 3] & 0xFF) << 24);
+            c = t7[low & 0xFF]
+                    ^ t6[(low >>> 8) & 0xFF]
+                    ^ t5[(low >>> 16) & 0xFF]
+                    ^ t4[low >>> 24]
+                    ^ t3[b[i + 4] & 0xFF]
+                    ^ t2[b[i + 5] & 0xFF]
+                    ^ t1[b[i + 6] & 0xFF]
+                    ^ t0[b[i + 7] & 0xFF];
+        }
+        for (; i < end; i++) {
+            c = (c >>> 8) ^ t0[(c ^ b[i]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return (~crc) & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
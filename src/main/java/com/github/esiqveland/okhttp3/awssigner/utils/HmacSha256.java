@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * HmacSha256 is a HmacSHA256 {@link Mac} that has already been initialized with a key.
+ * <p>
+ * Mac instances are not thread safe, so every call works on a clone of a prototype.
+ * Cloning skips both the JCA provider lookup and the key setup done by {@link Mac#init},
+ * and keeps no per-thread state around, so it is safe to use from any kind of thread.
+ * Providers that do not support cloning fall back to creating a new Mac every time.
+ */
+public final class HmacSha256 {
+    static final String ALGORITHM = "HmacSHA256";
+
+    // UNKEYED is looked up when the class loads, which makes sure the algorithm is present at
+    // startup, and is cloned to get new instances without going through the provider lookup.
+    private static final Mac UNKEYED = lookup();
+
+    private final byte[] key;
+    private final Mac prototype;
+
+    private HmacSha256(byte[] key, Mac prototype) {
+        this.key = key;
+        this.prototype = prototype;
+    }
+
+    public static HmacSha256 forKey(byte[] key) {
+        return new HmacSha256(key, newMac(key));
+    }
+
+    public byte[] sign(String data) {
+        return sign(data.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] sign(byte[] data) {
+        return newInstance().doFinal(data);
+    }
+
+    /**
+     * @return a Mac initialized with the key of this HmacSha256, owned by the caller
+     */
+    public Mac newInstance() {
+        Mac mac = cloneOf(prototype);
+        return mac != null ? mac : newMac(key);
+    }
+
+    static Mac newMac(byte[] key) {
+        Mac mac = cloneOf(UNKEYED);
+        if (mac == null) {
+            return Tools.getAlgorithmSilent(ALGORITHM, key);
+        }
+        try {
+            mac.init(new SecretKeySpec(key, ALGORITHM));
+            return mac;
+        } catch (InvalidKeyException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static Mac cloneOf(Mac mac) {
+        try {
+            return (Mac) mac.clone();
+        } catch (CloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    private static Mac lookup() {
+        try {
+            return Mac.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -17,19 +17,14 @@
 
 /*
  * Parts taken from jclouds project.
- * All code and comments in functions have been kept intact as well as notice.
+ * The functions have been adapted, the notice has been kept intact.
  */
 package com.github.esiqveland.okhttp3.awssigner.utils;
 
-import com.google.common.hash.Hashing;
-import com.google.common.hash.HashingInputStream;
-import com.google.common.io.ByteStreams;
-
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-
-import static com.google.common.io.BaseEncoding.base16;
+import java.security.MessageDigest;
 
 public class JCloudTools {
     /**
@@ -39,10 +34,14 @@ public class JCloudTools {
      * @return hash result
      */
     public static byte[] hash(InputStream is) {
-        HashingInputStream his = new HashingInputStream(Hashing.sha256(), is);
+        MessageDigest digest = Sha256Writer.newDigest();
+        byte[] buffer = new byte[8192];
         try {
-            ByteStreams.copy(his, ByteStreams.nullOutputStream());
-            return his.hash().asBytes();
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+            return digest.digest();
         } catch (IOException e) {
             throw new RuntimeException("Unable to compute hash while signing request: " + e.getMessage(), e);
         }
@@ -61,7 +60,7 @@ public class JCloudTools {
     }
 
     private static String createEmptyPayloadContentHash() {
-        return base16().lowerCase().encode(hash(new ByteArrayInputStream(new byte[0])));
+        return Utils.hex(hash(new ByteArrayInputStream(new byte[0])));
     }
 
 }
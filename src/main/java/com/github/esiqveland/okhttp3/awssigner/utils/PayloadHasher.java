@@ -0,0 +1,74 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.HashingSink;
+import okio.Okio;
+
+import java.io.IOException;
+import java.util.function.LongConsumer;
+
+/**
+ * PayloadHasher computes the hex encoded SHA-256 of a request body, as used for the last line
+ * of the canonical request.
+ */
+public class PayloadHasher {
+    private static final LongConsumer NO_COUNT = bytes -> {
+    };
+
+    /**
+     * Bodies with a known length can be written more than once, so they are streamed through
+     * a hashing sink that throws the bytes away, keeping memory use constant whatever the size
+     * of the payload. Bodies of unknown length are buffered in memory.
+     *
+     * @param body the request body, may be null
+     * @return hex encoded SHA-256 of the body
+     * @throws IOException if the body could not be written
+     */
+    public static String sha256Hex(RequestBody body) throws IOException {
+        return sha256Hex(body, NO_COUNT);
+    }
+
+    /**
+     * @param body        the request body, may be null
+     * @param bytesHashed is given the number of bytes hashed
+     * @return hex encoded SHA-256 of the body
+     * @throws IOException if the body could not be written
+     */
+    public static String sha256Hex(RequestBody body, LongConsumer bytesHashed) throws IOException {
+        if (body == null) {
+            bytesHashed.accept(0);
+            return JCloudTools.getEmptyPayloadContentHash();
+        }
+        long contentLength = body.contentLength();
+        if (contentLength == -1) {
+            Buffer buffer = new Buffer();
+            body.writeTo(buffer);
+            bytesHashed.accept(buffer.size());
+            return buffer.sha256().hex();
+        }
+        HashingSink hashingSink = HashingSink.sha256(Okio.blackhole());
+        BufferedSink sink = Okio.buffer(hashingSink);
+        body.writeTo(sink);
+        sink.emit();
+        bytesHashed.accept(contentLength);
+        return hashingSink.hash().hex();
+    }
+}
@@ -0,0 +1,149 @@
+/**
+ * Copyright 2017 Eivind Larsen.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Sha256Writer hashes text as it is written, encoding it to UTF-8 into a small scratch buffer
+ * on the way, so the text never has to exist as one String or byte array.
+ * <p>
+ * The text itself is only kept when asked for, for debugging and tests.
+ */
+public final class Sha256Writer {
+    private static final String ALGORITHM = "SHA-256";
+    // PROTOTYPE is cloned for new digests to skip the JCA provider lookup
+    private static final MessageDigest PROTOTYPE = lookup();
+
+    private final MessageDigest digest = newDigest();
+    private final byte[] scratch = new byte[256];
+    private int position = 0;
+    private final StringBuilder text;
+
+    /**
+     * @param keepText true to keep a copy of everything written, available from {@link #text()}
+     */
+    public Sha256Writer(boolean keepText) {
+        this.text = keepText ? new StringBuilder(512) : null;
+    }
+
+    public Sha256Writer append(char c) {
+        if (text != null) {
+            text.append(c);
+        }
+        if (c < 0x80) {
+            put((byte) c);
+        } else {
+            appendExtended(String.valueOf(c), 0);
+        }
+        return this;
+    }
+
+    public Sha256Writer append(CharSequence s) {
+        if (text != null) {
+            text.append(s);
+        }
+        int length = s.length();
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                put((byte) c);
+            } else {
+                i = appendExtended(s, i);
+            }
+        }
+        return this;
+    }
+
+    // appendExtended encodes the character at index i as UTF-8 and returns the index of its last char
+    private int appendExtended(CharSequence s, int i) {
+        char c = s.charAt(i);
+        if (c < 0x800) {
+            put((byte) (0xC0 | (c >> 6)));
+            put((byte) (0x80 | (c & 0x3F)));
+            return i;
+        }
+        if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+            int codePoint = Character.toCodePoint(c, s.charAt(i + 1));
+            put((byte) (0xF0 | (codePoint >> 18)));
+            put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+            put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+            put((byte) (0x80 | (codePoint & 0x3F)));
+            return i + 1;
+        }
+        if (Character.isSurrogate(c)) {
+            // unpaired surrogates are replaced the same way String.getBytes(UTF_8) does
+            put((byte) '?');
+            return i;
+        }
+        put((byte) (0xE0 | (c >> 12)));
+        put((byte) (0x80 | ((c >> 6) & 0x3F)));
+        put((byte) (0x80 | (c & 0x3F)));
+        return i;
+    }
+
+    private void put(byte b) {
+        if (position == scratch.length) {
+            digest.update(scratch, 0, position);
+            position = 0;
+        }
+        scratch[position++] = b;
+    }
+
+    /**
+     * @return the SHA-256 of everything written. The writer must not be used afterwards.
+     */
+    public byte[] digest() {
+        digest.update(scratch, 0, position);
+        position = 0;
+        return digest.digest();
+    }
+
+    /**
+     * @return the hex encoded SHA-256 of everything written. The writer must not be used afterwards.
+     */
+    public String hexDigest() {
+        return Utils.hex(digest());
+    }
+
+    /**
+     * @return everything written, or null if the writer was not asked to keep it
+     */
+    public String text() {
+        return text == null ? null : text.toString();
+    }
+
+    /**
+     * @return a new SHA-256 digest, cloned from a prototype to skip the JCA provider lookup
+     */
+    public static MessageDigest newDigest() {
+        try {
+            return (MessageDigest) PROTOTYPE.clone();
+        } catch (CloneNotSupportedException e) {
+            return lookup();
+        }
+    }
+
+    private static MessageDigest lookup() {
+        try {
+            return MessageDigest.getInstance(ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
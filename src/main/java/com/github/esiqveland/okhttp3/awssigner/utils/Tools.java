@@ -16,36 +16,25 @@
 
 package com.github.esiqveland.okhttp3.awssigner.utils;
 
-import com.google.common.base.Charsets;
-import com.google.common.escape.Escaper;
-import com.google.common.net.PercentEscaper;
+import okhttp3.Headers;
 import okhttp3.HttpUrl;
 
 import javax.crypto.Mac;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
-
-import static com.google.common.io.BaseEncoding.base16;
-import static java.util.stream.Collectors.joining;
 
 public class Tools {
 
     private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd")
             .withZone(ZoneId.of("GMT"));
 
-    // mac is a holder to make sure the algorithm is present at JVM startup
-    // and doesn't fail runtime when called
-    private final Mac mac = getAlgorithmSilent(HMAC_SHA256, "anykey".getBytes(Charsets.UTF_8));
-
-
     static Mac getAlgorithmSilent(String algorithm, byte[] key) {
         try {
             Mac mac = Mac.getInstance(algorithm);
@@ -56,11 +45,9 @@ public class Tools {
         }
     }
 
-    final static private String HMAC_SHA256 = "HmacSHA256";
-
     static byte[] HmacSHA256(byte[] key, String data) {
-        Mac mac = getAlgorithmSilent(HMAC_SHA256, key);
-        return mac.doFinal(data.getBytes(Charsets.UTF_8));
+        Mac mac = HmacSha256.newMac(key);
+        return mac.doFinal(data.getBytes(StandardCharsets.UTF_8));
     }
 
     // See: https://docs.aws.amazon.com/general/latest/gr/signature-v4-examples.html#signature-v4-examples-java
@@ -70,18 +57,22 @@ public class Tools {
             String regionName,
             String serviceName
     ) {
-        return base16().lowerCase().encode(getSignatureKey(secretKey, timestamp, regionName, serviceName));
+        return Utils.hex(getSignatureKey(secretKey, timestamp, regionName, serviceName));
     }
 
 
     public static String createSignature(byte[] signingKey, String stringToSign) {
-        return base16().lowerCase().encode(HmacSHA256(signingKey, stringToSign));
+        return Utils.hex(HmacSHA256(signingKey, stringToSign));
+    }
+
+    public static String createSignature(HmacSha256 signingKey, String stringToSign) {
+        return Utils.hex(signingKey.sign(stringToSign));
     }
 
     public static byte[] getSignatureKey(String secretKey, ZonedDateTime dateStamp, String regionName, String serviceName) {
         String theDate = DATE_FORMAT.format(dateStamp);
 
-        byte[] kSecret = ("AWS4" + secretKey).getBytes(Charsets.UTF_8);
+        byte[] kSecret = ("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8);
         byte[] kDate = HmacSHA256(kSecret, theDate);
         byte[] kRegion = HmacSHA256(kDate, regionName);
         byte[] kService = HmacSHA256(kRegion, serviceName);
@@ -89,59 +80,34 @@ public class Tools {
         return kSigning;
     }
 
-    /**
-     * Do not URI-encode any of the unreserved characters that RFC 3986 defines:
-     * A-Z, a-z, 0-9, hyphen ( - ), underscore ( _ ), period ( . ), and tilde ( ~ ).
-     * <p>
-     * Percent-encode all other characters with %XY, where X and Y are hexadecimal characters (0-9 and uppercase A-F).
-     * For example, the space character must be encoded as %20 (not using '+', as some encoding schemes do) and extended UTF-8 characters must be in the form %XY%ZA%BC.
-     * <p>
-     * See: https://docs.aws.amazon.com/general/latest/gr/sigv4-create-canonical-request.html
-     */
-    private static final Escaper URL_ENCODER = new PercentEscaper("-_.~", false);
-
     public static String createCanonicalQueryString(HttpUrl url) {
-        int querySize = url.querySize();
-        if (querySize == 0) {
-            return "";
-        }
-        return url.queryParameterNames().stream()
-                .flatMap(key -> url.queryParameterValues(key).stream()
-                        .map(value -> Tuple.of(
-                                URL_ENCODER.escape(key),
-                                URL_ENCODER.escape(value)
-                        )))
-                .sorted(Comparator.naturalOrder())
-                .map(keyVal -> keyVal.apply(
-                        (key, val) -> String.format("%s=%s", key, val))
-                )
-                .collect(joining("&"));
+        return CanonicalQueryString.of(url);
     }
 
     public static String createCanonicalHeaderString(Map<String, List<String>> headersMap) {
-        return headersMap.entrySet().stream()
-                .map(entry -> Tuple.of(
-                        Utils.lowerCase(entry.getKey()),
-                        entry.getValue()
-                ))
-                .map(tuple -> tuple.map2(valueList -> valueList.stream()
-                        .map(Utils::trim)
-                        .map(Utils::removeContiguousBlanks)
-                        .collect(joining(","))
-                ))
-                .map(tuple -> tuple.apply(
-                        (header, values) -> String.format("%s:%s", header, values)
-                ))
-                .collect(joining("\n"));
+        StringBuilder sb = new StringBuilder(headersMap.size() * 32);
+        for (Map.Entry<String, List<String>> entry : headersMap.entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('\n');
+            }
+            sb.append(Utils.lowerCase(entry.getKey())).append(':');
+            List<String> values = entry.getValue();
+            for (int i = 0; i < values.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                CanonicalHeaders.appendValue(sb, values.get(i));
+            }
+        }
+        return sb.toString();
     }
 
-    private static Pattern REDUNDANT_PATHS = Pattern.compile("\\/+");
+    public static String createCanonicalHeaderString(Headers headers) {
+        return CanonicalHeaders.of(headers).canonicalHeaders;
+    }
 
     public static String getCanonicalPath(HttpUrl url) {
-        return REDUNDANT_PATHS.matcher(Utils.defaultIfBlank(
-                url.encodedPath(),
-                "/"
-        )).replaceAll("/");
+        return CanonicalPath.of(url);
     }
 
 }
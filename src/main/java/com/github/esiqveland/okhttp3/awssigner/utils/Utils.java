@@ -1,13 +1,7 @@
 package com.github.esiqveland.okhttp3.awssigner.utils;
 
-import com.google.common.base.Charsets;
-
-import java.io.ByteArrayInputStream;
 import java.util.regex.Pattern;
 
-import static com.github.esiqveland.okhttp3.awssigner.utils.JCloudTools.hash;
-import static com.google.common.io.BaseEncoding.base16;
-
 public class Utils {
     public static boolean not(boolean value) {
         return !value;
@@ -59,8 +53,25 @@ public class Utils {
     }
 
     public static String hexHash(String data) {
-        byte[] bytes = data.getBytes(Charsets.UTF_8);
-        return base16().lowerCase().encode(hash(new ByteArrayInputStream(bytes)));
+        return new Sha256Writer(false).append(data).hexDigest();
+    }
+
+    private static final char[] HEX_LOWER = "0123456789abcdef".toCharArray();
+
+    /**
+     * hex encodes bytes with lowercase hexadecimal characters.
+     *
+     * @param bytes the bytes to encode
+     * @return the hex encoded bytes
+     */
+    public static String hex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            int b = bytes[i] & 0xFF;
+            chars[i * 2] = HEX_LOWER[b >>> 4];
+            chars[i * 2 + 1] = HEX_LOWER[b & 0x0F];
+        }
+        return new String(chars);
     }
 
 }
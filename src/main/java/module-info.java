@@ -3,7 +3,6 @@ module com.github.esiqveland.okhttp3.awssigner
     requires okhttp3;
     requires okio;
 
-    requires com.google.common;
-
     exports com.github.esiqveland.okhttp3.awssigner;
+    exports com.github.esiqveland.okhttp3.awssigner.credentials;
 }
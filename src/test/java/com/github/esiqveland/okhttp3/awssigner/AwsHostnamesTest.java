@@ -0,0 +1,68 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AwsHostnamesTest {
+
+    @Test
+    public void parsesRegionalEndpoints() {
+        assertRoute("sqs.eu-west-1.amazonaws.com", "eu-west-1/sqs");
+        assertRoute("dynamodb.us-gov-west-1.amazonaws.com", "us-gov-west-1/dynamodb");
+        assertRoute("kms-fips.us-east-2.amazonaws.com", "us-east-2/kms");
+        assertRoute("abc123.execute-api.ap-southeast-2.amazonaws.com", "ap-southeast-2/execute-api");
+        assertRoute("email.eu-central-1.amazonaws.com", "eu-central-1/ses");
+        assertRoute("ec2.cn-northwest-1.amazonaws.com.cn", "cn-northwest-1/ec2");
+    }
+
+    @Test
+    public void parsesServicesAfterRegion() {
+        assertRoute("search-foo-abc.us-east-1.es.amazonaws.com", "us-east-1/es");
+        assertRoute("vpc-logs-xyz.eu-west-1.es.amazonaws.com", "eu-west-1/es");
+        assertRoute("xyz.us-east-1.aoss.amazonaws.com", "us-east-1/aoss");
+    }
+
+    @Test
+    public void parsesS3Endpoints() {
+        assertRoute("bucket.s3.us-west-2.amazonaws.com", "us-west-2/s3");
+        assertRoute("my.dotted.bucket.s3.dualstack.eu-north-1.amazonaws.com", "eu-north-1/s3");
+        assertRoute("bucket.s3-eu-west-1.amazonaws.com", "eu-west-1/s3");
+        assertRoute("bucket.s3.amazonaws.com", "us-east-1/s3");
+        assertRoute("s3-external-1.amazonaws.com", "us-east-1/s3");
+        // buckets named like regions
+        assertRoute("ab-c-1.s3.amazonaws.com", "us-east-1/s3");
+        assertRoute("eu-west-1.s3.eu-central-1.amazonaws.com", "eu-central-1/s3");
+    }
+
+    @Test
+    public void signsGlobalEndpointsInDefaultRegion() {
+        assertRoute("iam.amazonaws.com", "us-east-1/iam");
+        assertRoute("sts.amazonaws.com", "us-east-1/sts");
+        assertRoute("iam.amazonaws.com.cn", "cn-north-1/iam");
+    }
+
+    @Test
+    public void ignoresOtherHosts() {
+        assertThat(AwsHostnames.parse("example.com")).isNull();
+        assertThat(AwsHostnames.parse("amazonaws.com")).isNull();
+        assertThat(AwsHostnames.parse("localhost")).isNull();
+    }
+
+    @Test
+    public void matchesRegionNames() {
+        assertThat(AwsHostnames.isRegion("us-east-1")).isTrue();
+        assertThat(AwsHostnames.isRegion("ap-southeast-4")).isTrue();
+        assertThat(AwsHostnames.isRegion("us-isob-east-1")).isTrue();
+        assertThat(AwsHostnames.isRegion("dualstack")).isFalse();
+        assertThat(AwsHostnames.isRegion("s3-external-1")).isFalse();
+        assertThat(AwsHostnames.isRegion("us-east")).isFalse();
+    }
+
+    private static void assertRoute(String host, String expected) {
+        RoutingSigningInterceptor.Route route = AwsHostnames.parse(host);
+
+        assertThat(route).isNotNull();
+        assertThat(route.toString()).isEqualTo(expected);
+    }
+}
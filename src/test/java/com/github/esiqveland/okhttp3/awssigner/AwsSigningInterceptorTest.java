@@ -1,23 +1,36 @@
 package com.github.esiqveland.okhttp3.awssigner;
 
+import com.github.esiqveland.okhttp3.awssigner.credentials.AwsCredentials;
+import com.github.esiqveland.okhttp3.awssigner.utils.JCloudTools;
 import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
 import okhttp3.Interceptor;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
+import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.mockwebserver.MockResponse;
 import okhttp3.mockwebserver.MockWebServer;
 import okhttp3.mockwebserver.RecordedRequest;
+import okio.BufferedSink;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -217,8 +230,7 @@ public class AwsSigningInterceptorTest {
         AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cfg, clock);
 
         ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
-        Interceptor.Chain chain = mock(Interceptor.Chain.class);
-        when(chain.request()).thenReturn(req);
+        Interceptor.Chain chain = mockChain(req);
 
         // invoke interceptor chain
         interceptor.intercept(chain);
@@ -231,6 +243,176 @@ public class AwsSigningInterceptorTest {
     }
 
 
+    @Test
+    public void test_clock_skew_is_corrected_and_request_retried() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        // the local clock is an hour behind the server
+        ZonedDateTime localTime = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        ZonedDateTime serverTime = localTime.plusHours(1);
+        server.enqueue(skewedResponse(serverTime, "RequestTimeTooSkewed"));
+        server.enqueue(new MockResponse().setResponseCode(200));
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        List<String> corrections = new ArrayList<>();
+        AwsConfiguration skewCfg = cfg.toBuilder()
+                .correctClockSkew(true)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void clockSkewCorrected(long skewSeconds, boolean retried) {
+                        corrections.add(skewSeconds + " " + retried);
+                    }
+                })
+                .build();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(skewCfg, () -> localTime))
+                .build();
+
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(200);
+        }
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(200);
+        }
+
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        assertThat(server.takeRequest().getHeader("X-Amz-Date")).isEqualTo("20150830T123600Z");
+        assertThat(server.takeRequest().getHeader("X-Amz-Date")).isEqualTo("20150830T133600Z");
+        // later requests are signed with the corrected clock straight away
+        assertThat(server.takeRequest().getHeader("X-Amz-Date")).isEqualTo("20150830T133600Z");
+        assertThat(corrections).containsExactly("3600 true");
+        server.shutdown();
+    }
+
+    @Test
+    public void test_clock_skew_is_not_retried_by_network_interceptor() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        ZonedDateTime localTime = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        server.enqueue(skewedResponse(localTime.minusMinutes(20), "RequestTimeTooSkewed"));
+        server.enqueue(new MockResponse().setResponseCode(200));
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addNetworkInterceptor(new AwsSigningInterceptor(cfg.toBuilder().correctClockSkew(true).build(), () -> localTime))
+                .build();
+
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(403);
+        }
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(200);
+        }
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        server.takeRequest();
+        assertThat(server.takeRequest().getHeader("X-Amz-Date")).isEqualTo("20150830T121600Z");
+        server.shutdown();
+    }
+
+    @Test
+    public void test_signature_error_with_good_clock_is_not_retried() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        ZonedDateTime localTime = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        server.enqueue(skewedResponse(localTime.plusSeconds(2), "SignatureDoesNotMatch"));
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(cfg.toBuilder().correctClockSkew(true).build(), () -> localTime))
+                .build();
+
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(403);
+        }
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        server.shutdown();
+    }
+
+    @Test
+    public void test_clock_skew_does_not_resend_body_that_may_be_one_shot() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        ZonedDateTime localTime = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        server.enqueue(skewedResponse(localTime.plusHours(1), "RequestTimeTooSkewed"));
+
+        List<String> corrections = new ArrayList<>();
+        AwsConfiguration skewCfg = cfg.toBuilder()
+                .correctClockSkew(true)
+                .payloadSigningMode(PayloadSigningMode.UNSIGNED)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void clockSkewCorrected(long skewSeconds, boolean retried) {
+                        corrections.add(skewSeconds + " " + retried);
+                    }
+                })
+                .build();
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(skewCfg, () -> localTime))
+                .build();
+        byte[] content = "streamed".getBytes(StandardCharsets.UTF_8);
+        RequestBody oneShot = new RequestBody() {
+            private boolean written;
+
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public long contentLength() {
+                return content.length;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                if (written) {
+                    throw new IllegalStateException("body was already written");
+                }
+                written = true;
+                sink.write(content);
+            }
+        };
+
+        try (Response res = client.newCall(skewRequest(server).newBuilder().put(oneShot).build()).execute()) {
+            assertThat(res.code()).isEqualTo(403);
+        }
+
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        assertThat(corrections).containsExactly("3600 false");
+        server.shutdown();
+    }
+
+    @Test
+    public void test_clock_skew_is_off_by_default() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        ZonedDateTime localTime = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        server.enqueue(skewedResponse(localTime.plusHours(1), "RequestTimeTooSkewed"));
+
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(cfg, () -> localTime))
+                .build();
+
+        try (Response res = client.newCall(skewRequest(server)).execute()) {
+            assertThat(res.code()).isEqualTo(403);
+        }
+        assertThat(server.getRequestCount()).isEqualTo(1);
+        server.shutdown();
+    }
+
+    private static Request skewRequest(MockWebServer server) {
+        return createExampleRequest()
+                .removeHeader("X-Amz-Date")
+                .url(server.url("/"))
+                .build();
+    }
+
+    private static MockResponse skewedResponse(ZonedDateTime serverTime, String errorCode) {
+        return new MockResponse()
+                .setResponseCode(403)
+                .setHeader("Date", DateTimeFormatter.RFC_1123_DATE_TIME.format(serverTime))
+                .setBody("<Error><Code>" + errorCode + "</Code></Error>");
+    }
+
     // See also: http://docs.aws.amazon.com/general/latest/gr/sigv4-create-canonical-request.html
     @Test
     public void test_AWS_SIG4_request_is_chained() throws IOException {
@@ -241,14 +423,445 @@ public class AwsSigningInterceptorTest {
         Request req = createExampleRequest()
                 .build();
 
-        Interceptor.Chain chain = mock(Interceptor.Chain.class);
-        when(chain.request()).thenReturn(req);
+        Interceptor.Chain chain = mockChain(req);
 
         interceptor.intercept(chain);
 
         verify(chain, times(1)).proceed(any());
     }
 
+    @Test
+    public void test_unsigned_payload_sends_content_sha256_header() throws IOException {
+        AwsConfiguration unsignedCfg = cfg.toBuilder()
+                .payloadSigningMode(PayloadSigningMode.UNSIGNED)
+                .build();
+
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(unsignedCfg, () -> aDate);
+
+        Request req = createExampleRequest()
+                .put(RequestBody.create(null, "some payload"))
+                .build();
+
+        Request finalRequest = interceptAndCapture(interceptor, req);
+
+        assertThat(finalRequest.header("x-amz-content-sha256")).isEqualTo("UNSIGNED-PAYLOAD");
+        assertThat(finalRequest.header("Authorization"))
+                .contains("SignedHeaders=content-type;host;x-amz-content-sha256;x-amz-date,");
+
+        AwsSigningInterceptor.CanonicalRequest canonicalRequest = interceptor.makeCanonicalRequest(
+                aDate,
+                finalRequest,
+                AwsSigningInterceptor.UNSIGNED_PAYLOAD
+        );
+        assertThat(canonicalRequest.canonicalRequest).endsWith("\nUNSIGNED-PAYLOAD");
+    }
+
+    @Test
+    public void test_unsigned_payload_above_threshold() throws IOException {
+        AwsConfiguration adaptiveCfg = cfg.toBuilder()
+                .payloadSigningMode(PayloadSigningMode.UNSIGNED_ABOVE_THRESHOLD)
+                .unsignedPayloadThreshold(4)
+                .build();
+
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(adaptiveCfg, () -> aDate);
+
+        Request small = createExampleRequest()
+                .put(RequestBody.create(null, "tiny"))
+                .build();
+        Request large = createExampleRequest()
+                .put(RequestBody.create(null, "larger than four bytes"))
+                .build();
+
+        // sha256("tiny")
+        assertThat(interceptAndCapture(interceptor, small).header("x-amz-content-sha256"))
+                .isEqualTo("8950abfda7b727630760dd35bcf5c3daa7631aff223a90f7728c0d2521dde10c");
+        assertThat(interceptAndCapture(interceptor, large).header("x-amz-content-sha256"))
+                .isEqualTo("UNSIGNED-PAYLOAD");
+    }
+
+    @Test
+    public void test_signed_payload_does_not_add_content_sha256_header() throws IOException {
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cfg, () -> aDate);
+
+        Request finalRequest = interceptAndCapture(interceptor, createExampleRequest().build());
+
+        assertThat(finalRequest.header("x-amz-content-sha256")).isNull();
+    }
+
+    @Test
+    public void test_session_token_is_sent_and_signed() throws IOException {
+        AwsConfiguration temporaryCfg = cfg.toBuilder()
+                .credentialsProvider(() -> new AwsCredentials("ASIAEXAMPLE", "secret", "session-token", null))
+                .build();
+
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(temporaryCfg, () -> aDate);
+
+        Request finalRequest = interceptAndCapture(interceptor, createExampleRequest().build());
+
+        assertThat(finalRequest.header("X-Amz-Security-Token")).isEqualTo("session-token");
+        assertThat(finalRequest.header("Authorization"))
+                .startsWith("AWS4-HMAC-SHA256 Credential=ASIAEXAMPLE/20150830/us-east-1/iam/aws4_request, ")
+                .contains("SignedHeaders=content-type;host;x-amz-date;x-amz-security-token,");
+    }
+
+    @Test
+    public void test_signing_listener_is_told_about_each_phase() throws IOException {
+        List<String> events = new ArrayList<>();
+        SigningListener listener = new SigningListener() {
+            @Override
+            public void signingKeyDerived(long nanos) {
+                events.add("derived");
+            }
+
+            @Override
+            public void cacheAccessed(String cache, boolean hit) {
+                events.add(cache + (hit ? " hit" : " miss"));
+            }
+
+            @Override
+            public void payloadHashed(long bytes, long nanos) {
+                events.add("hashed " + bytes);
+            }
+
+            @Override
+            public void canonicalRequestBuilt(long nanos) {
+                events.add("canonical");
+            }
+
+            @Override
+            public void signatureComputed(long nanos) {
+                events.add("signature");
+            }
+
+            @Override
+            public void requestSigned(long nanos) {
+                assertThat(nanos).isGreaterThanOrEqualTo(0);
+                events.add("signed");
+            }
+        };
+        AwsConfiguration listenedCfg = cfg.toBuilder().signingListener(listener).build();
+
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(listenedCfg, () -> aDate);
+
+        interceptAndCapture(interceptor, createExampleRequest().put(RequestBody.create(null, "tiny")).build());
+        interceptAndCapture(interceptor, createExampleRequest().build());
+
+        assertThat(events).containsExactly(
+                "derived", "signing-key miss", "hashed 4", "canonical", "signature", "signed",
+                "signing-key hit", "hashed 0", "canonical", "signature", "signed"
+        );
+    }
+
+    @Test
+    public void test_prehashed_body_is_not_read_while_signing() throws IOException {
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cfg, () -> aDate);
+
+        Request hashed = createExampleRequest()
+                .put(RequestBody.create(null, "tiny"))
+                .build();
+        Request prehashed = createExampleRequest()
+                .put(new PrehashedRequestBody(unreadableBody(), "8950ABFDA7B727630760DD35BCF5C3DAA7631AFF223A90F7728C0D2521DDE10C"))
+                .build();
+
+        assertThat(interceptAndCapture(interceptor, prehashed).header("Authorization"))
+                .isEqualTo(interceptAndCapture(interceptor, hashed).header("Authorization"));
+    }
+
+    @Test
+    public void test_trusted_content_sha256_header_is_used_as_payload_hash() throws IOException {
+        AwsConfiguration trustingCfg = cfg.toBuilder()
+                .trustContentSha256Header(true)
+                .build();
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(trustingCfg, () -> aDate);
+
+        Request req = createExampleRequest()
+                .header("x-amz-content-sha256", "8950abfda7b727630760dd35bcf5c3daa7631aff223a90f7728c0d2521dde10c")
+                .put(unreadableBody())
+                .build();
+        Request finalRequest = interceptAndCapture(interceptor, req);
+
+        AwsSigningInterceptor.CanonicalRequest canonicalRequest = interceptor.makeCanonicalRequest(
+                aDate,
+                finalRequest,
+                "8950abfda7b727630760dd35bcf5c3daa7631aff223a90f7728c0d2521dde10c"
+        );
+        assertThat(finalRequest.header("Authorization"))
+                .contains("SignedHeaders=content-type;host;x-amz-content-sha256;x-amz-date,");
+        assertThat(canonicalRequest.canonicalRequest)
+                .endsWith("\n8950abfda7b727630760dd35bcf5c3daa7631aff223a90f7728c0d2521dde10c");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void test_prehashed_body_rejects_invalid_hash() {
+        new PrehashedRequestBody(RequestBody.create(null, "tiny"), "not-a-hash");
+    }
+
+    @Test
+    public void test_sigv4a_signs_with_region_set() throws Exception {
+        AwsConfiguration sigV4aCfg = cfg.toBuilder()
+                .signingAlgorithm(SigningAlgorithm.SIGV4A)
+                .regionSet("us-east-1,us-west-2")
+                .build();
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(sigV4aCfg, () -> aDate);
+
+        Request finalRequest = interceptAndCapture(interceptor, createExampleRequest().build());
+
+        assertThat(finalRequest.header("X-Amz-Region-Set")).isEqualTo("us-east-1,us-west-2");
+        String authorization = finalRequest.header("Authorization");
+        assertThat(authorization).startsWith("AWS4-ECDSA-P256-SHA256 Credential=AKIDEXAMPLE/20150830/iam/aws4_request, " +
+                "SignedHeaders=content-type;host;x-amz-date;x-amz-region-set, Signature=");
+
+        SigningTime time = SigningTime.ofEpochSecond(aDate.toEpochSecond());
+        AwsSigningInterceptor.CanonicalRequest canonicalRequest = AwsSigningInterceptor.makeCanonicalRequest(
+                time,
+                finalRequest.newBuilder().removeHeader("Authorization").build(),
+                JCloudTools.getEmptyPayloadContentHash(),
+                false
+        );
+        String stringToSign = "AWS4-ECDSA-P256-SHA256\n20150830T123600Z\n20150830/iam/aws4_request\n" + canonicalRequest.hash;
+        String signature = authorization.substring(authorization.indexOf("Signature=") + "Signature=".length());
+        assertThat(SigV4aKeyCacheTest.verify(SigV4aKeyCacheTest.examplePublicKey(), stringToSign, signature)).isTrue();
+    }
+
+    @Test
+    public void test_missing_keys_fail_request_with_io_exception() {
+        AwsConfiguration noKeys = cfg.toBuilder()
+                .awsAccessKey(null)
+                .awsSecretKey("")
+                .build();
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(noKeys);
+
+        assertThatThrownBy(() -> interceptAndCapture(interceptor, createExampleRequest().build()))
+                .isInstanceOf(IOException.class)
+                .hasMessageStartingWith("no credentials configured");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void test_sigv4a_rejects_signed_chunked_payload() throws IOException {
+        AwsConfiguration sigV4aCfg = cfg.toBuilder()
+                .signingAlgorithm(SigningAlgorithm.SIGV4A)
+                .build();
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(sigV4aCfg);
+
+        interceptAndCapture(interceptor, createExampleRequest()
+                .put(new AwsChunkedRequestBody(RequestBody.create(null, "chunked")))
+                .build());
+    }
+
+    @Test
+    public void test_signature_cache_reuses_header_within_second() throws IOException {
+        List<Boolean> accesses = new ArrayList<>();
+        AtomicReference<AwsCredentials> credentials = new AtomicReference<>(new AwsCredentials("AKIDEXAMPLE", "secret"));
+        AwsConfiguration cachingCfg = cfg.toBuilder()
+                .signatureCacheSize(16)
+                .credentialsProvider(credentials::get)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void cacheAccessed(String cache, boolean hit) {
+                        if (SigningListener.SIGNATURE_CACHE.equals(cache)) {
+                            accesses.add(hit);
+                        }
+                    }
+                })
+                .build();
+        AtomicLong now = new AtomicLong(1440938160L);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cachingCfg, new SigningClock(now::get));
+        AwsSigningInterceptor uncached = new AwsSigningInterceptor(cachingCfg.toBuilder().signatureCacheSize(0).build(), new SigningClock(now::get));
+        Request request = createExampleRequest().build();
+
+        String first = interceptAndCapture(interceptor, request).header("Authorization");
+        String second = interceptAndCapture(interceptor, request).header("Authorization");
+        assertThat(second).isEqualTo(first);
+        assertThat(first).isEqualTo(interceptAndCapture(uncached, request).header("Authorization"));
+
+        // another header is another signature
+        Request other = createExampleRequest().header("Accept", "application/json").build();
+        assertThat(interceptAndCapture(interceptor, other).header("Authorization")).isNotEqualTo(first);
+
+        now.incrementAndGet();
+        String nextSecond = interceptAndCapture(interceptor, request).header("Authorization");
+        assertThat(nextSecond).isEqualTo(interceptAndCapture(uncached, request).header("Authorization"));
+
+        credentials.set(new AwsCredentials("AKIDEXAMPLE", "rotated"));
+        String rotated = interceptAndCapture(interceptor, request).header("Authorization");
+        assertThat(rotated).isNotEqualTo(nextSecond);
+        assertThat(rotated).isEqualTo(interceptAndCapture(uncached, request).header("Authorization"));
+
+        assertThat(accesses).containsExactly(false, true, false, false, false);
+    }
+
+    @Test
+    public void test_canonical_url_cache_signs_like_uncached() throws IOException {
+        List<Boolean> accesses = new ArrayList<>();
+        AwsConfiguration cachingCfg = cfg.toBuilder()
+                .canonicalUrlCacheSize(16)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void cacheAccessed(String cache, boolean hit) {
+                        if (SigningListener.CANONICAL_URL_CACHE.equals(cache)) {
+                            accesses.add(hit);
+                        }
+                    }
+                })
+                .build();
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cachingCfg, () -> aDate);
+        AwsSigningInterceptor uncached = new AwsSigningInterceptor(cfg, () -> aDate);
+        Request request = createExampleRequest().build();
+        Request otherQuery = createExampleRequest()
+                .url("https://iam.amazonaws.com/?Action=ListGroups&Version=2010-05-08")
+                .build();
+
+        String expected = interceptAndCapture(uncached, request).header("Authorization");
+        assertThat(interceptAndCapture(interceptor, request).header("Authorization")).isEqualTo(expected);
+        assertThat(interceptAndCapture(interceptor, request).header("Authorization")).isEqualTo(expected);
+        assertThat(interceptAndCapture(interceptor, otherQuery).header("Authorization"))
+                .isEqualTo(interceptAndCapture(uncached, otherQuery).header("Authorization"));
+
+        assertThat(accesses).containsExactly(false, true, false);
+    }
+
+    @Test
+    public void test_warm_up_signs_synthetic_requests() throws IOException {
+        List<String> events = new ArrayList<>();
+        AwsConfiguration warmCfg = cfg.toBuilder()
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void signingKeyDerived(long nanos) {
+                        events.add("signingKeyDerived");
+                    }
+
+                    @Override
+                    public void requestSigned(long nanos) {
+                        events.add("requestSigned");
+                    }
+
+                    @Override
+                    public void payloadHashed(long bytes, long nanos) {
+                        events.add("payloadHashed");
+                    }
+
+                    @Override
+                    public void cacheAccessed(String cache, boolean hit) {
+                        events.add(cache + (hit ? " hit" : " miss"));
+                    }
+
+                    @Override
+                    public void warmedUp(int requests, long nanos) {
+                        events.add("warmedUp " + requests);
+                    }
+                })
+                .build();
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(warmCfg, () -> aDate);
+
+        Duration took = interceptor.warmUp(3);
+
+        // the synthetic requests are not reported as signed requests
+        assertThat(took).isGreaterThan(Duration.ZERO);
+        assertThat(events).containsExactly("warmedUp 3");
+
+        // the key derived during warm-up is used for real requests, which sign as before
+        events.clear();
+        Request finalRequest = interceptAndCapture(interceptor, createExampleRequest().build());
+        assertThat(events).contains("signing-key hit", "requestSigned").doesNotContain("signingKeyDerived");
+        assertThat(finalRequest.header("Authorization"))
+                .isEqualTo(interceptAndCapture(new AwsSigningInterceptor(cfg, () -> aDate), createExampleRequest().build()).header("Authorization"));
+    }
+
+    @Test
+    public void test_warm_up_leaves_signature_cache_alone() throws IOException {
+        List<Boolean> accesses = new ArrayList<>();
+        AwsConfiguration cachingCfg = cfg.toBuilder()
+                .signatureCacheSize(2)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void cacheAccessed(String cache, boolean hit) {
+                        if (SigningListener.SIGNATURE_CACHE.equals(cache)) {
+                            accesses.add(hit);
+                        }
+                    }
+                })
+                .build();
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cachingCfg, () -> aDate);
+
+        interceptAndCapture(interceptor, createExampleRequest().build());
+        interceptor.warmUp(10);
+        interceptAndCapture(interceptor, createExampleRequest().build());
+
+        assertThat(accesses).containsExactly(false, true);
+    }
+
+    @Test
+    public void test_warm_up_when_built() {
+        List<Integer> warmUps = new ArrayList<>();
+        AwsConfiguration warmCfg = cfg.toBuilder()
+                .warmUpRequests(5)
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void warmedUp(int requests, long nanos) {
+                        warmUps.add(requests);
+                    }
+                })
+                .build();
+
+        new AwsSigningInterceptor(warmCfg);
+
+        assertThat(warmUps).containsExactly(5);
+    }
+
+    // unreadableBody fails the test if the interceptor reads it
+    private static RequestBody unreadableBody() {
+        return new RequestBody() {
+            @Override
+            public MediaType contentType() {
+                return null;
+            }
+
+            @Override
+            public long contentLength() {
+                return 4;
+            }
+
+            @Override
+            public void writeTo(BufferedSink sink) {
+                throw new AssertionError("body must not be read while signing");
+            }
+        };
+    }
+
+    private static Request interceptAndCapture(AwsSigningInterceptor interceptor, Request req) throws IOException {
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        Interceptor.Chain chain = mockChain(req);
+
+        interceptor.intercept(chain);
+
+        verify(chain).proceed(captor.capture());
+        return captor.getValue();
+    }
+
+    // mockChain returns a chain that answers every request with 200 OK
+    static Interceptor.Chain mockChain(Request req) throws IOException {
+        Interceptor.Chain chain = mock(Interceptor.Chain.class);
+        when(chain.request()).thenReturn(req);
+        when(chain.proceed(any())).thenAnswer(invocation -> new Response.Builder()
+                .request((Request) invocation.getArguments()[0])
+                .protocol(Protocol.HTTP_1_1)
+                .code(200)
+                .message("OK")
+                .build());
+        return chain;
+    }
+
     static Request.Builder createExampleRequest() {
         return new Request.Builder()
                 .get()
@@ -0,0 +1,124 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.PayloadHasher;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.verify;
+
+public class FileRequestBodyTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path file(int size) throws IOException {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+        return file;
+    }
+
+    @Test
+    public void hashesAcrossMapWindows() throws IOException {
+        Path file = file(10_000);
+        byte[] content = Files.readAllBytes(file);
+
+        FileRequestBody body = new FileRequestBody(null, file, 0, -1, 4096);
+
+        assertThat(body.contentLength()).isEqualTo(10_000);
+        assertThat(body.sha256Hex()).isEqualTo(ByteString.of(content).sha256().hex());
+    }
+
+    @Test
+    public void writesAndHashesRange() throws IOException {
+        Path file = file(10_000);
+        byte[] content = Files.readAllBytes(file);
+        byte[] range = Arrays.copyOfRange(content, 1000, 9000);
+
+        FileRequestBody body = new FileRequestBody(null, file, 1000, 8000, 4096);
+        Buffer written = new Buffer();
+        body.writeTo(written);
+
+        assertThat(body.contentLength()).isEqualTo(8000);
+        assertThat(written.readByteArray()).isEqualTo(range);
+        assertThat(body.sha256Hex()).isEqualTo(ByteString.of(range).sha256().hex());
+    }
+
+    @Test
+    public void rehashesChangedFile() throws IOException {
+        Path file = file(1000);
+        FileRequestBody body = new FileRequestBody(null, file);
+        String first = body.sha256Hex();
+
+        Files.write(file, new byte[]{1, 2, 3}, StandardOpenOption.APPEND);
+        byte[] appended = Files.readAllBytes(file);
+
+        assertThat(body.sha256Hex()).isNotEqualTo(first).isEqualTo(ByteString.of(appended).sha256().hex());
+
+        // rewritten with the same size, only the modification time tells
+        byte[] rewritten = new byte[appended.length];
+        Files.write(file, rewritten);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 10_000));
+
+        assertThat(body.sha256Hex()).isEqualTo(ByteString.of(rewritten).sha256().hex());
+    }
+
+    @Test
+    public void hashesEmptyFile() throws IOException {
+        FileRequestBody body = new FileRequestBody(null, file(0));
+
+        assertThat(body.sha256Hex()).isEqualTo(PayloadHasher.sha256Hex(null));
+    }
+
+    @Test
+    public void failsWhenFileIsShorterThanRange() throws IOException {
+        FileRequestBody body = new FileRequestBody(null, file(100), 50, 100);
+
+        assertThatThrownBy(body::sha256Hex).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void signsLikeOkHttpFileBody() throws IOException {
+        Path file = file(5000);
+        AwsConfiguration cfg = new AwsConfiguration("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "us-east-1", "s3");
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00Z");
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cfg, () -> aDate);
+
+        String fromFile = authorization(interceptor, new FileRequestBody(null, file));
+        String fromOkHttp = authorization(interceptor, RequestBody.create(null, file.toFile()));
+
+        assertThat(fromFile).isEqualTo(fromOkHttp);
+    }
+
+    private static String authorization(AwsSigningInterceptor interceptor, RequestBody body) throws IOException {
+        Request request = new Request.Builder()
+                .url("https://examplebucket.s3.amazonaws.com/file")
+                .header("Host", "examplebucket.s3.amazonaws.com")
+                .put(body)
+                .build();
+        Interceptor.Chain chain = AwsSigningInterceptorTest.mockChain(request);
+        interceptor.intercept(chain);
+
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        verify(chain).proceed(captor.capture());
+        return captor.getValue().header("Authorization");
+    }
+}
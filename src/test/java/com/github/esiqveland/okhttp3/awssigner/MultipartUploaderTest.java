@@ -0,0 +1,150 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class MultipartUploaderTest {
+    private static final int SIZE = (int) (2 * MultipartUploader.MIN_PART_SIZE + 1000);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MockWebServer server;
+    private ExecutorService executor;
+    private MultipartUploader uploader;
+    private HttpUrl objectUrl;
+    private byte[] content;
+
+    // parts received, by part number
+    private final Map<String, ByteString> parts = new ConcurrentHashMap<>();
+    private final List<String> calls = new CopyOnWriteArrayList<>();
+    private volatile int failPart = -1;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                HttpUrl url = request.getRequestUrl();
+                if (request.getHeader("Authorization") == null) {
+                    return new MockResponse().setResponseCode(403);
+                }
+                if ("POST".equals(request.getMethod()) && url.queryParameter("uploads") != null) {
+                    calls.add("initiate");
+                    return new MockResponse().setBody("<InitiateMultipartUploadResult><UploadId>upload-1</UploadId></InitiateMultipartUploadResult>");
+                }
+                if ("PUT".equals(request.getMethod())) {
+                    String partNumber = url.queryParameter("partNumber");
+                    if (String.valueOf(failPart).equals(partNumber)) {
+                        return new MockResponse().setResponseCode(500);
+                    }
+                    ByteString body = request.getBody().readByteString();
+                    parts.put(partNumber, body);
+                    return new MockResponse().setHeader("ETag", "\"" + body.md5().hex() + "\"");
+                }
+                if ("POST".equals(request.getMethod())) {
+                    calls.add("complete " + request.getBody().readUtf8());
+                    return new MockResponse().setBody("<CompleteMultipartUploadResult><ETag>&quot;final&quot;</ETag></CompleteMultipartUploadResult>");
+                }
+                if ("DELETE".equals(request.getMethod())) {
+                    calls.add("abort " + url.queryParameter("uploadId"));
+                    return new MockResponse().setResponseCode(204);
+                }
+                return new MockResponse().setResponseCode(400);
+            }
+        });
+        server.start();
+
+        AwsConfiguration cfg = new AwsConfiguration("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "us-east-1", "s3");
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(cfg))
+                .build();
+        executor = Executors.newFixedThreadPool(2);
+        uploader = new MultipartUploader(client, executor, MultipartUploader.MIN_PART_SIZE, 2);
+        objectUrl = server.url("/bucket/object");
+
+        content = new byte[SIZE];
+        new Random(42).nextBytes(content);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        executor.shutdownNow();
+        server.shutdown();
+    }
+
+    @Test
+    public void uploadsStreamInParts() throws IOException {
+        String etag = uploader.upload(objectUrl, new ByteArrayInputStream(content), null);
+
+        assertThat(etag).isEqualTo("\"final\"");
+        assertParts();
+    }
+
+    @Test
+    public void uploadsFileInParts() throws IOException {
+        Path file = folder.newFile().toPath();
+        Files.write(file, content);
+
+        String etag = uploader.upload(objectUrl, file, null);
+
+        assertThat(etag).isEqualTo("\"final\"");
+        assertParts();
+    }
+
+    @Test
+    public void abortsWhenPartFails() {
+        failPart = 2;
+
+        assertThatThrownBy(() -> uploader.upload(objectUrl, new ByteArrayInputStream(content), null))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("part 2");
+        assertThat(calls).containsExactly("initiate", "abort upload-1");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSmallParts() {
+        new MultipartUploader(new OkHttpClient(), executor, 1024, 2);
+    }
+
+    private void assertParts() {
+        int partSize = (int) MultipartUploader.MIN_PART_SIZE;
+        assertThat(parts).hasSize(3);
+        assertThat(parts.get("1")).isEqualTo(ByteString.of(content, 0, partSize));
+        assertThat(parts.get("2")).isEqualTo(ByteString.of(content, partSize, partSize));
+        assertThat(parts.get("3")).isEqualTo(ByteString.of(content, 2 * partSize, 1000));
+
+        assertThat(calls).hasSize(2);
+        assertThat(calls.get(1)).isEqualTo("complete <CompleteMultipartUpload>" +
+                "<Part><PartNumber>1</PartNumber><ETag>&quot;" + parts.get("1").md5().hex() + "&quot;</ETag></Part>" +
+                "<Part><PartNumber>2</PartNumber><ETag>&quot;" + parts.get("2").md5().hex() + "&quot;</ETag></Part>" +
+                "<Part><PartNumber>3</PartNumber><ETag>&quot;" + parts.get("3").md5().hex() + "&quot;</ETag></Part>" +
+                "</CompleteMultipartUpload>");
+    }
+}
@@ -0,0 +1,131 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+public class RoutingSigningInterceptorTest {
+    private static final ZonedDateTime A_DATE = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+
+    private final AtomicInteger derivedKeys = new AtomicInteger();
+    private AwsConfiguration base;
+
+    @Before
+    public void setUp() {
+        base = AwsConfiguration.builder()
+                .awsAccessKey("AKIDEXAMPLE")
+                .awsSecretKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY")
+                .signingListener(new SigningListener() {
+                    @Override
+                    public void signingKeyDerived(long nanos) {
+                        derivedKeys.incrementAndGet();
+                    }
+                })
+                .build();
+    }
+
+    @Test
+    public void signsLikeInterceptorForParsedRoute() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base)
+                .clock(() -> A_DATE)
+                .build();
+        AwsSigningInterceptor sqs = new AwsSigningInterceptor(base.toBuilder()
+                .awsRegion("eu-west-1")
+                .awsServiceName("sqs")
+                .build(), () -> A_DATE);
+        Request request = request("https://sqs.eu-west-1.amazonaws.com/?Action=ListQueues");
+
+        String authorization = intercept(routing, request).header("Authorization");
+
+        assertThat(authorization).contains("/20150830/eu-west-1/sqs/aws4_request");
+        assertThat(authorization).isEqualTo(intercept(sqs, request).header("Authorization"));
+    }
+
+    @Test
+    public void signsForServiceAfterRegion() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base)
+                .clock(() -> A_DATE)
+                .build();
+
+        assertThat(intercept(routing, request("https://search-foo-abc.us-east-1.es.amazonaws.com/_search")).header("Authorization"))
+                .contains("/20150830/us-east-1/es/aws4_request");
+        assertThat(intercept(routing, request("https://xyz.us-east-1.aoss.amazonaws.com/index/_doc")).header("Authorization"))
+                .contains("/20150830/us-east-1/aoss/aws4_request");
+        // services before the region are still signed for the label before it
+        assertThat(intercept(routing, request("https://sqs.us-east-1.amazonaws.com/")).header("Authorization"))
+                .contains("/20150830/us-east-1/sqs/aws4_request");
+    }
+
+    @Test
+    public void routesTakePrecedenceOverHostnames() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base)
+                .route("sqs.eu-west-1.amazonaws.com", "eu-west-1", "custom")
+                .route("queue.internal", "us-west-2", "sqs")
+                .clock(() -> A_DATE)
+                .build();
+
+        assertThat(intercept(routing, request("https://sqs.eu-west-1.amazonaws.com/")).header("Authorization"))
+                .contains("/20150830/eu-west-1/custom/aws4_request");
+        assertThat(intercept(routing, request("https://queue.internal/")).header("Authorization"))
+                .contains("/20150830/us-west-2/sqs/aws4_request");
+    }
+
+    @Test
+    public void sharesSigningKeyPerRoute() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base)
+                .clock(() -> A_DATE)
+                .build();
+
+        intercept(routing, request("https://bucket-a.s3.us-west-2.amazonaws.com/key"));
+        intercept(routing, request("https://bucket-b.s3.us-west-2.amazonaws.com/key"));
+        intercept(routing, request("https://sqs.us-west-2.amazonaws.com/"));
+
+        // one key for s3 in us-west-2, one for sqs
+        assertThat(derivedKeys.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void fallsBackToBaseConfiguration() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base.toBuilder()
+                .awsRegion("us-east-1")
+                .awsServiceName("execute-api")
+                .build())
+                .clock(() -> A_DATE)
+                .build();
+
+        assertThat(routing.route("api.example.com").toString()).isEqualTo("us-east-1/execute-api");
+        assertThat(intercept(routing, request("https://api.example.com/")).header("Authorization"))
+                .contains("/20150830/us-east-1/execute-api/aws4_request");
+    }
+
+    @Test(expected = IOException.class)
+    public void rejectsUnknownHostWithoutFallback() throws IOException {
+        RoutingSigningInterceptor routing = RoutingSigningInterceptor.builder(base).build();
+
+        intercept(routing, request("https://api.example.com/"));
+    }
+
+    private static Request request(String url) {
+        return new Request.Builder().url(url).build();
+    }
+
+    private static Request intercept(Interceptor interceptor, Request request) throws IOException {
+        ArgumentCaptor<Request> captor = ArgumentCaptor.forClass(Request.class);
+        Interceptor.Chain chain = AwsSigningInterceptorTest.mockChain(request);
+
+        interceptor.intercept(chain);
+
+        verify(chain).proceed(captor.capture());
+        return captor.getValue();
+    }
+}
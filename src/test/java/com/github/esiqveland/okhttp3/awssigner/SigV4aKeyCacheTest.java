@@ -0,0 +1,96 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.Signature;
+import java.security.spec.ECPoint;
+import java.security.spec.ECPublicKeySpec;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SigV4aKeyCacheTest {
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+
+    // public key derived from the example credentials, from the aws-c-auth SigV4A test suite
+    private static final String PUBLIC_X = "b6618f6a65740a99e650b33b6b4b5bd0d43b176d721a3edfea7e7d2d56d936b1";
+    private static final String PUBLIC_Y = "865ed22a7eadc9c5cb9d2cbaca1b3699139fedc5043dc6661864218330c8e518";
+
+    private SigV4aKeyCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new SigV4aKeyCache("s3", SigningListener.NOOP);
+    }
+
+    @Test
+    public void derivesKeyMatchingKnownPublicKey() throws Exception {
+        SigV4aKeyCache.Context ctx = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-30T12:36:00.000Z"));
+
+        // ECDSA signatures are randomized, so the derived key is checked against the known public key instead
+        String signature = ctx.sign("string to sign");
+
+        assertThat(verify(examplePublicKey(), "string to sign", signature)).isTrue();
+        assertThat(verify(examplePublicKey(), "another string", signature)).isFalse();
+    }
+
+    @Test
+    public void scopeHasNoRegion() {
+        SigV4aKeyCache.Context ctx = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-30T12:36:00.000Z"));
+
+        assertThat(ctx.credentialScope).isEqualTo("20150830/s3/aws4_request");
+        assertThat(ctx.authorizationPrefix)
+                .isEqualTo("AWS4-ECDSA-P256-SHA256 Credential=AKIDEXAMPLE/20150830/s3/aws4_request, SignedHeaders=");
+    }
+
+    @Test
+    public void reusesKeyAcrossDays() {
+        SigV4aKeyCache.Context today = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-30T12:36:00.000Z"));
+        SigV4aKeyCache.Context sameDay = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-30T23:36:00.000Z"));
+        SigV4aKeyCache.Context tomorrow = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-31T00:00:01.000Z"));
+
+        assertThat(sameDay).isSameAs(today);
+        assertThat(tomorrow.credentialScope).isEqualTo("20150831/s3/aws4_request");
+        assertThat(tomorrow.privateKey).isSameAs(today.privateKey);
+    }
+
+    @Test
+    public void rederivesWhenCredentialsChange() {
+        SigV4aKeyCache.Context first = cache.get(ACCESS_KEY, SECRET_KEY, time("2015-08-30T12:36:00.000Z"));
+        SigV4aKeyCache.Context rotated = cache.get(ACCESS_KEY, "another-secret", time("2015-08-30T12:36:00.000Z"));
+
+        assertThat(rotated.privateKey.getS()).isNotEqualTo(first.privateKey.getS());
+        assertThat(rotated.privateKey.getS()).isEqualTo(SigV4aKeyCache.derivePrivateKey(ACCESS_KEY, "another-secret"));
+    }
+
+    static PublicKey examplePublicKey() throws Exception {
+        ECPoint point = new ECPoint(new BigInteger(PUBLIC_X, 16), new BigInteger(PUBLIC_Y, 16));
+        return KeyFactory.getInstance("EC").generatePublic(new ECPublicKeySpec(point, SigV4aKeyCache.P256));
+    }
+
+    static boolean verify(PublicKey publicKey, String stringToSign, String hexSignature) throws Exception {
+        Signature ecdsa = Signature.getInstance("SHA256withECDSA");
+        ecdsa.initVerify(publicKey);
+        ecdsa.update(stringToSign.getBytes(StandardCharsets.UTF_8));
+        return ecdsa.verify(unhex(hexSignature));
+    }
+
+    private static byte[] unhex(String hex) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    private static SigningTime time(String timestamp) {
+        return SigningTime.ofEpochSecond(ZonedDateTime.parse(timestamp, DateTimeFormatter.ISO_DATE_TIME).toEpochSecond());
+    }
+}
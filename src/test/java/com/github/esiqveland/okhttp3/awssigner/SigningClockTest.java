@@ -0,0 +1,70 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SigningClockTest {
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'")
+            .withZone(ZoneOffset.UTC);
+    private static final DateTimeFormatter DATE_STAMP = DateTimeFormatter.ofPattern("yyyyMMdd")
+            .withZone(ZoneOffset.UTC);
+
+    @Test
+    public void formatsLikeDateTimeFormatter() {
+        long[] seconds = {0L, 1440938160L, 951782399L, 951782400L, 4102444799L, 253402300799L};
+        for (long epochSecond : seconds) {
+            SigningTime time = SigningTime.ofEpochSecond(epochSecond);
+            Instant instant = Instant.ofEpochSecond(epochSecond);
+
+            assertThat(time.amzDate).isEqualTo(AMZ_DATE.format(instant));
+            assertThat(time.dateStamp).isEqualTo(DATE_STAMP.format(instant));
+        }
+    }
+
+    @Test
+    public void reusesTimeWithinSameSecond() {
+        AtomicLong now = new AtomicLong(1440938160L);
+        SigningClock clock = new SigningClock(now::get);
+
+        SigningTime first = clock.now();
+        SigningTime second = clock.now();
+        assertThat(second).isSameAs(first);
+
+        now.incrementAndGet();
+        SigningTime third = clock.now();
+        assertThat(third).isNotSameAs(first);
+        assertThat(third.amzDate).isEqualTo("20150830T123601Z");
+        assertThat(third.dateStamp).isSameAs(first.dateStamp);
+    }
+
+    @Test
+    public void formatsNewDateStampAcrossMidnight() {
+        AtomicLong now = new AtomicLong(1440979199L);
+        SigningClock clock = new SigningClock(now::get);
+
+        assertThat(clock.now().amzDate).isEqualTo("20150830T235959Z");
+        now.incrementAndGet();
+        SigningTime afterMidnight = clock.now();
+        assertThat(afterMidnight.amzDate).isEqualTo("20150831T000000Z");
+        assertThat(afterMidnight.dateStamp).isEqualTo("20150831");
+    }
+
+    @Test
+    public void appliesSkewToLocalTime() {
+        AtomicLong now = new AtomicLong(1440938160L);
+        SigningClock clock = new SigningClock(now::get);
+
+        assertThat(clock.adjustSkew(1440938160L + 3600)).isEqualTo(3600);
+        assertThat(clock.now().amzDate).isEqualTo("20150830T133600Z");
+
+        now.addAndGet(10);
+        assertThat(clock.now().amzDate).isEqualTo("20150830T133610Z");
+        assertThat(clock.skewSeconds()).isEqualTo(3600);
+    }
+}
@@ -0,0 +1,78 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Tools;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SigningKeyCacheTest {
+    private static final String ACCESS_KEY = "AKIDEXAMPLE";
+    private static final String SECRET_KEY = "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY";
+
+    private SigningKeyCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new SigningKeyCache("us-east-1", "iam");
+    }
+
+    @Test
+    public void derivesSameKeyAsTools() {
+        ZonedDateTime timestamp = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+
+        SigningContext ctx = cache.get(ACCESS_KEY, SECRET_KEY, time(timestamp));
+
+        assertThat(ctx.signingKey).isEqualTo(Tools.getSignatureKey(SECRET_KEY, timestamp, "us-east-1", "iam"));
+        assertThat(ctx.credentialScope).isEqualTo("20150830/us-east-1/iam/aws4_request");
+        assertThat(ctx.authorizationPrefix)
+                .isEqualTo("AWS4-HMAC-SHA256 Credential=AKIDEXAMPLE/20150830/us-east-1/iam/aws4_request, SignedHeaders=");
+    }
+
+    @Test
+    public void reusesContextWithinDay() {
+        ZonedDateTime morning = ZonedDateTime.parse("2015-08-30T00:00:01.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        ZonedDateTime evening = ZonedDateTime.parse("2015-08-30T23:00:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+
+        SigningContext first = cache.get(ACCESS_KEY, SECRET_KEY, time(morning));
+        SigningContext second = cache.get(ACCESS_KEY, SECRET_KEY, time(evening));
+
+        assertThat(second).isSameAs(first);
+        assertThat(cache.precomputed()).isNull();
+    }
+
+    @Test
+    public void precomputesNextDayBeforeMidnight() {
+        ZonedDateTime beforeMidnight = ZonedDateTime.parse("2015-08-30T23:59:30.000Z", DateTimeFormatter.ISO_DATE_TIME);
+        ZonedDateTime afterMidnight = ZonedDateTime.parse("2015-08-31T00:00:01.000Z", DateTimeFormatter.ISO_DATE_TIME);
+
+        SigningContext today = cache.get(ACCESS_KEY, SECRET_KEY, time(beforeMidnight));
+        SigningContext precomputed = cache.precomputed();
+
+        assertThat(today.dateStamp).isEqualTo("20150830");
+        assertThat(precomputed).isNotNull();
+        assertThat(precomputed.dateStamp).isEqualTo("20150831");
+        assertThat(precomputed.signingKey).isEqualTo(Tools.getSignatureKey(SECRET_KEY, afterMidnight, "us-east-1", "iam"));
+
+        SigningContext tomorrow = cache.get(ACCESS_KEY, SECRET_KEY, time(afterMidnight));
+        assertThat(tomorrow).isSameAs(precomputed);
+    }
+
+    @Test
+    public void rederivesWhenCredentialsChange() {
+        ZonedDateTime timestamp = ZonedDateTime.parse("2015-08-30T12:36:00.000Z", DateTimeFormatter.ISO_DATE_TIME);
+
+        SigningContext first = cache.get(ACCESS_KEY, SECRET_KEY, time(timestamp));
+        SigningContext rotated = cache.get(ACCESS_KEY, "another-secret", time(timestamp));
+
+        assertThat(rotated).isNotSameAs(first);
+        assertThat(rotated.signingKey).isEqualTo(Tools.getSignatureKey("another-secret", timestamp, "us-east-1", "iam"));
+    }
+
+    private static SigningTime time(ZonedDateTime timestamp) {
+        return SigningTime.ofEpochSecond(timestamp.toEpochSecond());
+    }
+}
@@ -0,0 +1,176 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.ByteString;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.ZonedDateTime;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class SpooledRequestBodyTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        new Random(size).nextBytes(content);
+        return content;
+    }
+
+    @Test
+    public void keepsSmallBodyInMemory() throws IOException {
+        File directory = folder.newFolder();
+        byte[] content = content(1000);
+
+        SpooledRequestBody body = SpooledRequestBody.spool(new OneShotBody(content), 4096, directory);
+
+        assertThat(body.spilled()).isFalse();
+        assertThat(directory.list()).isEmpty();
+        assertThat(body.contentLength()).isEqualTo(1000);
+        assertThat(body.sha256Hex()).isEqualTo(ByteString.of(content).sha256().hex());
+        assertThat(written(body)).isEqualTo(content);
+        assertThat(written(body)).isEqualTo(content);
+    }
+
+    @Test
+    public void spillsLargeBodyToFile() throws IOException {
+        File directory = folder.newFolder();
+        byte[] content = content(100_000);
+
+        SpooledRequestBody body = SpooledRequestBody.spool(new OneShotBody(content), 4096, directory);
+
+        assertThat(body.spilled()).isTrue();
+        assertThat(directory.list()).hasSize(1);
+        assertThat(body.contentLength()).isEqualTo(100_000);
+        assertThat(body.sha256Hex()).isEqualTo(ByteString.of(content).sha256().hex());
+        assertThat(written(body)).isEqualTo(content);
+        assertThat(written(body)).isEqualTo(content);
+
+        body.release();
+
+        assertThat(directory.list()).isEmpty();
+        assertThatThrownBy(() -> written(body)).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void deletesFileWhenBodyFails() throws IOException {
+        File directory = folder.newFolder();
+        RequestBody failing = new OneShotBody(content(100_000)) {
+            @Override
+            public void writeTo(BufferedSink sink) throws IOException {
+                sink.write(content(10_000));
+                throw new IOException("stream broke");
+            }
+        };
+
+        assertThatThrownBy(() -> SpooledRequestBody.spool(failing, 4096, directory))
+                .hasMessage("stream broke");
+        assertThat(directory.list()).isEmpty();
+    }
+
+    @Test
+    public void signsAndSendsOneShotBody() throws Exception {
+        MockWebServer server = new MockWebServer();
+        server.start();
+        server.enqueue(new MockResponse().setResponseCode(200));
+        File directory = folder.newFolder();
+        byte[] content = content(100_000);
+
+        ZonedDateTime aDate = ZonedDateTime.parse("2015-08-30T12:36:00.000Z");
+        AwsConfiguration cfg = AwsConfiguration.builder()
+                .awsAccessKey("AKIDEXAMPLE")
+                .awsSecretKey("wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY")
+                .awsRegion("us-east-1")
+                .awsServiceName("s3")
+                .payloadSpillThreshold(4096)
+                .payloadSpillDirectory(directory)
+                .build();
+        AwsSigningInterceptor interceptor = new AwsSigningInterceptor(cfg, () -> aDate);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .addInterceptor(interceptor)
+                .build();
+        Request request = new Request.Builder()
+                .url(server.url("/bucket/key"))
+                .put(new OneShotBody(content))
+                .build();
+
+        try (Response res = client.newCall(request).execute()) {
+            assertThat(res.code()).isEqualTo(200);
+        }
+
+        RecordedRequest recorded = server.takeRequest();
+        assertThat(recorded.getBody().readByteArray()).isEqualTo(content);
+        assertThat(recorded.getHeader("Content-Length")).isEqualTo("100000");
+        assertThat(directory.list()).isEmpty();
+
+        // signed like the same content in a body that can be written twice
+        Request replayable = new Request.Builder()
+                .url(server.url("/bucket/key"))
+                .put(RequestBody.create(null, content))
+                .build();
+        assertThat(recorded.getHeader("Authorization")).isEqualTo(interceptor.makeAWSAuthorizationHeader(
+                SigningTime.ofEpochSecond(aDate.toEpochSecond()),
+                replayable,
+                ByteString.of(content).sha256().hex(),
+                SigningContext.derive(
+                        "AKIDEXAMPLE",
+                        "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY",
+                        aDate.toLocalDate(),
+                        "us-east-1",
+                        "s3"
+                )
+        ));
+        server.shutdown();
+    }
+
+    private static byte[] written(RequestBody body) throws IOException {
+        Buffer buffer = new Buffer();
+        body.writeTo(buffer);
+        return buffer.readByteArray();
+    }
+
+    // OneShotBody has no known length, and can only be written once
+    private static class OneShotBody extends RequestBody {
+        private final byte[] content;
+        private boolean written;
+
+        OneShotBody(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            if (written) {
+                throw new IllegalStateException("body was already written");
+            }
+            written = true;
+            sink.write(content);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.esiqveland.okhttp3.awssigner;
+
+import com.github.esiqveland.okhttp3.awssigner.utils.Crc32c;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+import okio.ByteString;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class UnsignedTrailerRequestBodyTest {
+    private static final int CHUNK_SIZE = AwsChunkedRequestBody.MIN_CHUNK_SIZE;
+
+    private MockWebServer server;
+    private OkHttpClient client;
+    private byte[] content;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+
+        AwsConfiguration cfg = new AwsConfiguration("AKIDEXAMPLE", "wJalrXUtnFEMI/K7MDENG+bPxRfiCYEXAMPLEKEY", "us-east-1", "s3");
+        client = new OkHttpClient.Builder()
+                .addInterceptor(new AwsSigningInterceptor(cfg))
+                .build();
+
+        content = new byte[2 * CHUNK_SIZE + 3616];
+        new Random(7).nextBytes(content);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void sendsCrc32Trailer() throws Exception {
+        CRC32 crc = new CRC32();
+        crc.update(content, 0, content.length);
+
+        RecordedRequest recorded = upload(ChecksumAlgorithm.CRC32);
+
+        assertThat(readChunked(recorded, "x-amz-checksum-crc32")).isEqualTo(base64(crc.getValue()));
+    }
+
+    @Test
+    public void sendsCrc32cTrailer() throws Exception {
+        Crc32c crc = new Crc32c();
+        crc.update(content, 0, content.length);
+
+        RecordedRequest recorded = upload(ChecksumAlgorithm.CRC32C);
+
+        assertThat(readChunked(recorded, "x-amz-checksum-crc32c")).isEqualTo(base64(crc.getValue()));
+    }
+
+    @Test
+    public void sendsSha256Trailer() throws Exception {
+        RecordedRequest recorded = upload(ChecksumAlgorithm.SHA256);
+
+        assertThat(readChunked(recorded, "x-amz-checksum-sha256")).isEqualTo(ByteString.of(content).sha256().base64());
+    }
+
+    private RecordedRequest upload(ChecksumAlgorithm algorithm) throws Exception {
+        server.enqueue(new MockResponse());
+        UnsignedTrailerRequestBody body = new UnsignedTrailerRequestBody(RequestBody.create(null, content), algorithm, CHUNK_SIZE);
+        Request request = new Request.Builder()
+                .url(server.url("/bucket/object"))
+                .put(body)
+                .build();
+        try (Response response = client.newCall(request).execute()) {
+            assertThat(response.code()).isEqualTo(200);
+        }
+
+        RecordedRequest recorded = server.takeRequest();
+        assertThat(recorded.getHeader("x-amz-content-sha256")).isEqualTo("STREAMING-UNSIGNED-PAYLOAD-TRAILER");
+        assertThat(recorded.getHeader("Content-Encoding")).isEqualTo("aws-chunked");
+        assertThat(recorded.getHeader("x-amz-decoded-content-length")).isEqualTo(Integer.toString(content.length));
+        assertThat(recorded.getHeader("x-amz-trailer")).isEqualTo(algorithm.headerName);
+        assertThat(recorded.getHeader("Authorization"))
+                .contains("SignedHeaders=content-encoding;x-amz-content-sha256;x-amz-date;x-amz-decoded-content-length;x-amz-trailer,");
+        assertThat(recorded.getHeader("Content-Length")).isEqualTo(Long.toString(body.contentLength()));
+        assertThat(recorded.getBodySize()).isEqualTo(body.contentLength());
+        return recorded;
+    }
+
+    // readChunked checks the chunk framing and content, and returns the value of the trailer
+    private String readChunked(RecordedRequest recorded, String trailerName) throws IOException {
+        Buffer body = recorded.getBody();
+        Buffer decoded = new Buffer();
+        int[] expectedSizes = {CHUNK_SIZE, CHUNK_SIZE, 3616, 0};
+        for (int expectedSize : expectedSizes) {
+            int size = Integer.parseInt(body.readUtf8LineStrict(), 16);
+            assertThat(size).isEqualTo(expectedSize);
+            if (size == 0) {
+                break;
+            }
+            decoded.write(body, size);
+            assertThat(body.readUtf8LineStrict()).isEmpty();
+        }
+        assertThat(decoded.readByteArray()).isEqualTo(content);
+
+        String trailer = body.readUtf8LineStrict();
+        assertThat(body.readUtf8LineStrict()).isEmpty();
+        assertThat(body.exhausted()).isTrue();
+        assertThat(trailer).startsWith(trailerName + ":");
+        return trailer.substring(trailerName.length() + 1);
+    }
+
+    private static String base64(long crc) {
+        return ByteString.of((byte) (crc >>> 24), (byte) (crc >>> 16), (byte) (crc >>> 8), (byte) crc).base64();
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import okhttp3.OkHttpClient;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ContainerCredentialsProviderTest {
+    private MockWebServer server;
+    private ContainerCredentialsProvider provider;
+
+    @Before
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        provider = new ContainerCredentialsProvider(new OkHttpClient(), server.url("/v2/credentials/abc"), "secret-token");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.shutdown();
+    }
+
+    @Test
+    public void fetchesTemporaryCredentials() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\n" +
+                "  \"RoleArn\": \"arn:aws:iam::123456789012:role/task\",\n" +
+                "  \"AccessKeyId\": \"ASIAEXAMPLE\",\n" +
+                "  \"SecretAccessKey\": \"wJalrXUtnFEMI\\/K7MDENG\",\n" +
+                "  \"Token\": \"IQoJb3JpZ2luX2VjE\",\n" +
+                "  \"Expiration\": \"2015-08-30T18:00:00Z\"\n" +
+                "}"));
+
+        AwsCredentials credentials = provider.getCredentials();
+
+        assertThat(credentials.accessKeyId).isEqualTo("ASIAEXAMPLE");
+        assertThat(credentials.secretAccessKey).isEqualTo("wJalrXUtnFEMI/K7MDENG");
+        assertThat(credentials.sessionToken).isEqualTo("IQoJb3JpZ2luX2VjE");
+        assertThat(credentials.expiration).isEqualTo(Instant.parse("2015-08-30T18:00:00Z"));
+
+        RecordedRequest request = server.takeRequest();
+        assertThat(request.getPath()).isEqualTo("/v2/credentials/abc");
+        assertThat(request.getHeader("Authorization")).isEqualTo("secret-token");
+    }
+
+    @Test
+    public void failsOnErrorResponse() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+
+        assertThatThrownBy(() -> provider.getCredentials())
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("HTTP 500");
+    }
+
+    @Test
+    public void failsOnMissingKeys() {
+        server.enqueue(new MockResponse().setBody("{\"Code\": \"Failure\"}"));
+
+        assertThatThrownBy(() -> provider.getCredentials())
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void refreshesThroughRefreshingProvider() throws Exception {
+        server.enqueue(new MockResponse().setBody("{\"AccessKeyId\": \"ASIA1\", \"SecretAccessKey\": \"s1\", \"Token\": \"t1\", \"Expiration\": \"2999-01-01T00:00:00Z\"}"));
+
+        RefreshingCredentialsProvider refreshing = RefreshingCredentialsProvider.builder(provider).build();
+
+        assertThat(refreshing.getCredentials().accessKeyId).isEqualTo("ASIA1");
+        assertThat(refreshing.getCredentials().accessKeyId).isEqualTo("ASIA1");
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+}
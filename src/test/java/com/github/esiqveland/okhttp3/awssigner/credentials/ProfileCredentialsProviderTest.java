@@ -0,0 +1,68 @@
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class ProfileCredentialsProviderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path write(String content) throws IOException {
+        Path file = folder.getRoot().toPath().resolve("credentials");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    @Test
+    public void readsNamedProfile() throws IOException {
+        Path file = write("[default]\n" +
+                "aws_access_key_id = AKIDDEFAULT\n" +
+                "aws_secret_access_key = defaultsecret\n" +
+                "\n" +
+                "# temporary credentials\n" +
+                "[profile ci]\n" +
+                "aws_access_key_id=AKIDCI\n" +
+                "aws_secret_access_key=cisecret\n" +
+                "aws_session_token=citoken\n");
+
+        AwsCredentials credentials = new ProfileCredentialsProvider(file, "ci").getCredentials();
+
+        assertThat(credentials.accessKeyId).isEqualTo("AKIDCI");
+        assertThat(credentials.secretAccessKey).isEqualTo("cisecret");
+        assertThat(credentials.sessionToken).isEqualTo("citoken");
+        assertThat(credentials.expiration).isNull();
+    }
+
+    @Test
+    public void rereadsFileWhenModified() throws IOException {
+        Path file = write("[default]\naws_access_key_id = AKID1\naws_secret_access_key = secret1\n");
+        ProfileCredentialsProvider provider = new ProfileCredentialsProvider(file, "default");
+
+        AwsCredentials first = provider.getCredentials();
+        assertThat(provider.getCredentials()).isSameAs(first);
+
+        write("[default]\naws_access_key_id = AKID2\naws_secret_access_key = secret2\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 1000));
+
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID2");
+    }
+
+    @Test
+    public void failsOnMissingProfile() throws IOException {
+        Path file = write("[default]\naws_access_key_id = AKID1\naws_secret_access_key = secret1\n");
+
+        assertThatThrownBy(() -> new ProfileCredentialsProvider(file, "other").getCredentials())
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("profile other not found");
+    }
+}
@@ -0,0 +1,155 @@
+package com.github.esiqveland.okhttp3.awssigner.credentials;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RefreshingCredentialsProviderTest {
+    private static final Instant START = Instant.parse("2015-08-30T12:00:00Z");
+
+    private final MutableClock clock = new MutableClock(START);
+    // tasks collects background refreshes, so tests decide when they run
+    private final List<Runnable> tasks = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    private AwsCredentials next(Duration validFor) {
+        int n = loads.incrementAndGet();
+        return new AwsCredentials("AKID" + n, "secret" + n, "token" + n, clock.instant().plus(validFor));
+    }
+
+    private RefreshingCredentialsProvider provider(AwsCredentialsProvider source) {
+        return RefreshingCredentialsProvider.builder(source)
+                .refreshAhead(Duration.ofMinutes(5))
+                .executor(tasks::add)
+                .clock(clock)
+                .build();
+    }
+
+    @Test
+    public void loadsOnceAndCaches() throws IOException {
+        RefreshingCredentialsProvider provider = provider(() -> next(Duration.ofHours(1)));
+
+        AwsCredentials first = provider.getCredentials();
+        clock.advance(Duration.ofMinutes(30));
+        AwsCredentials second = provider.getCredentials();
+
+        assertThat(second).isSameAs(first);
+        assertThat(loads.get()).isEqualTo(1);
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void refreshesInBackgroundBeforeExpiry() throws IOException {
+        RefreshingCredentialsProvider provider = provider(() -> next(Duration.ofHours(1)));
+        AwsCredentials first = provider.getCredentials();
+
+        clock.advance(Duration.ofMinutes(56));
+        // still served the current credentials while the refresh is pending
+        assertThat(provider.getCredentials()).isSameAs(first);
+        assertThat(provider.getCredentials()).isSameAs(first);
+        assertThat(tasks).hasSize(1);
+
+        tasks.remove(0).run();
+
+        AwsCredentials refreshed = provider.getCredentials();
+        assertThat(refreshed.accessKeyId).isEqualTo("AKID2");
+        assertThat(refreshed.sessionToken).isEqualTo("token2");
+    }
+
+    @Test
+    public void loadsSynchronouslyAfterExpiry() throws IOException {
+        RefreshingCredentialsProvider provider = provider(() -> next(Duration.ofHours(1)));
+        provider.getCredentials();
+
+        clock.advance(Duration.ofHours(2));
+
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID2");
+        assertThat(tasks).isEmpty();
+    }
+
+    @Test
+    public void keepsCredentialsWhenRefreshFails() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        List<Exception> failures = new ArrayList<>();
+        RefreshingCredentialsProvider provider = RefreshingCredentialsProvider.builder(() -> {
+                    if (calls.incrementAndGet() == 2) {
+                        throw new IOException("endpoint unavailable");
+                    }
+                    return next(Duration.ofHours(1));
+                })
+                .refreshAhead(Duration.ofMinutes(5))
+                .executor(tasks::add)
+                .refreshFailureHandler(failures::add)
+                .clock(clock)
+                .build();
+        AwsCredentials first = provider.getCredentials();
+
+        clock.advance(Duration.ofMinutes(56));
+        provider.getCredentials();
+        tasks.remove(0).run();
+
+        // the failed refresh is reported, and not retried immediately
+        assertThat(failures).extracting(Exception::getMessage).containsExactly("endpoint unavailable");
+        assertThat(provider.getCredentials()).isSameAs(first);
+        assertThat(tasks).isEmpty();
+
+        clock.advance(RefreshingCredentialsProvider.RETRY_DELAY);
+        provider.getCredentials();
+        tasks.remove(0).run();
+
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID2");
+    }
+
+    @Test
+    public void reloadsCredentialsWithoutExpirationOnInterval() throws IOException {
+        RefreshingCredentialsProvider provider = RefreshingCredentialsProvider.builder(
+                () -> new AwsCredentials("AKID" + loads.incrementAndGet(), "secret"))
+                .refreshInterval(Duration.ofMinutes(10))
+                .executor(tasks::add)
+                .clock(clock)
+                .build();
+
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID1");
+        clock.advance(Duration.ofMinutes(11));
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID1");
+        tasks.remove(0).run();
+
+        assertThat(provider.getCredentials().accessKeyId).isEqualTo("AKID2");
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
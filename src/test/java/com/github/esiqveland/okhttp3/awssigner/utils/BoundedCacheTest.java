@@ -0,0 +1,41 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BoundedCacheTest {
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        // reading a makes b the least recently used
+        assertThat(cache.get("a")).isEqualTo(1);
+
+        cache.put("c", 3);
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isEqualTo(1);
+        assertThat(cache.get("c")).isEqualTo(3);
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(2);
+        cache.put("a", 1);
+
+        cache.clear();
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.size()).isZero();
+    }
+
+    @Test
+    void rejectsEmptyCache() {
+        assertThrows(IllegalArgumentException.class, () -> new BoundedCache<String, String>(0));
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.Headers;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CanonicalHeadersTest {
+
+    @Test
+    void sortsAndLowercasesNames() {
+        Headers headers = new Headers.Builder()
+                .add("X-Amz-Date", "20150830T123600Z")
+                .add("Host", "example.amazonaws.com")
+                .add("Content-Type", "application/json")
+                .build();
+
+        CanonicalHeaders canonical = CanonicalHeaders.of(headers);
+
+        assertThat(canonical.canonicalHeaders).isEqualTo("content-type:application/json\n" +
+                "host:example.amazonaws.com\n" +
+                "x-amz-date:20150830T123600Z");
+        assertThat(canonical.signedHeaders).isEqualTo("content-type;host;x-amz-date");
+    }
+
+    @Test
+    void joinsRepeatedHeadersInOrder() {
+        Headers headers = new Headers.Builder()
+                .add("My-Header1", "value4")
+                .add("Host", "example.amazonaws.com")
+                .add("my-header1", "value1")
+                .add("MY-HEADER1", "value3")
+                .build();
+
+        CanonicalHeaders canonical = CanonicalHeaders.of(headers);
+
+        assertThat(canonical.canonicalHeaders).isEqualTo("host:example.amazonaws.com\n" +
+                "my-header1:value4,value1,value3");
+        assertThat(canonical.signedHeaders).isEqualTo("host;my-header1");
+    }
+
+    @Test
+    void replacesOverriddenHeader() {
+        Headers headers = new Headers.Builder()
+                .add("X-Amz-Date", "19700101T000000Z")
+                .add("Host", "example.amazonaws.com")
+                .build();
+
+        CanonicalHeaders canonical = CanonicalHeaders.of(headers, "x-amz-date", "20150830T123600Z");
+
+        assertThat(canonical.canonicalHeaders).isEqualTo("host:example.amazonaws.com\n" +
+                "x-amz-date:20150830T123600Z");
+    }
+
+    @Test
+    void collapsesWhitespaceLikeUtils() {
+        String[] values = {"value1", " value1 ", "a b c", "  a    b   c  ", "a\tb", "a \t b", "a  ", "", "   "};
+        for (String value : values) {
+            StringBuilder sb = new StringBuilder();
+            CanonicalHeaders.appendValue(sb, value);
+
+            assertThat(sb.toString()).isEqualTo(Utils.removeContiguousBlanks(Utils.trim(value)));
+        }
+    }
+
+    @Test
+    void sortsByCharacterCode() {
+        Headers headers = new Headers.Builder()
+                .add("x-amzb", "2")
+                .add("x-amz_a", "1")
+                .build();
+
+        // '_' sorts before lowercase letters
+        assertThat(CanonicalHeaders.of(headers).signedHeaders).isEqualTo("x-amz_a;x-amzb");
+    }
+}
@@ -0,0 +1,36 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CanonicalPathTest {
+
+    @Test
+    void collapsesRepeatedSlashes() {
+        assertThat(CanonicalPath.of(HttpUrl.parse("https://example.com//a///b/"))).isEqualTo("/a/b/");
+        assertThat(CanonicalPath.of(HttpUrl.parse("https://example.com"))).isEqualTo("/");
+    }
+
+    @Test
+    void returnsCanonicalPathAsIs() {
+        HttpUrl url = HttpUrl.parse("https://example.com/bucket/key-1.txt");
+
+        assertThat(CanonicalPath.of(url, true)).isEqualTo("/bucket/key-1.txt");
+    }
+
+    @Test
+    void keepsEncodedPathForS3() {
+        HttpUrl url = HttpUrl.parse("https://example.com/example space/a+b");
+
+        assertThat(CanonicalPath.of(url, false)).isEqualTo("/example%20space/a+b");
+    }
+
+    @Test
+    void encodesSegmentsAgain() {
+        HttpUrl url = HttpUrl.parse("https://example.com/example space//a+b/ሴ");
+
+        assertThat(CanonicalPath.of(url, true)).isEqualTo("/example%2520space/a%2Bb/%25E1%2588%25B4");
+    }
+}
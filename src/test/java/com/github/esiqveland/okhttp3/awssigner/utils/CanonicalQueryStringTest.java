@@ -0,0 +1,103 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import com.google.common.escape.Escaper;
+import com.google.common.net.PercentEscaper;
+import okhttp3.HttpUrl;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CanonicalQueryStringTest {
+    private static final Escaper ESCAPER = new PercentEscaper("-_.~", false);
+
+    @Test
+    void emptyQuery() {
+        assertThat(CanonicalQueryString.of(HttpUrl.parse("https://example.amazonaws.com/"))).isEqualTo("");
+    }
+
+    @Test
+    void sortsByNameThenValue() {
+        HttpUrl url = HttpUrl.parse("https://example.amazonaws.com/?Param2=value2&Param1=value2&Param1=value1");
+
+        assertThat(CanonicalQueryString.of(url)).isEqualTo("Param1=value1&Param1=value2&Param2=value2");
+    }
+
+    @Test
+    void sortsNamesThatArePrefixesOfEachOther() {
+        HttpUrl url = HttpUrl.parse("https://example.amazonaws.com/?a-b=1&a=2&a.b=3");
+
+        // '-' (0x2D) < '.' (0x2E), and "a" sorts before both
+        assertThat(CanonicalQueryString.of(url)).isEqualTo("a=2&a-b=1&a.b=3");
+    }
+
+    @Test
+    void encodesReservedAndExtendedCharacters() {
+        // names are sorted after encoding, so "%E1..." comes first
+        HttpUrl url = HttpUrl.parse("https://example.amazonaws.com/?ሴ=bar&key=a%20b%2Bc*~&empty");
+
+        assertThat(CanonicalQueryString.of(url)).isEqualTo("%E1%88%B4=bar&empty=&key=a%20b%2Bc%2A~");
+    }
+
+    @Test
+    void encodesLikePercentEscaper() {
+        Random random = new Random(42);
+        String alphabet = "abcXYZ019-_.~ !*'();:@&=+$,/?#[]%æøåሴ";
+        for (int i = 0; i < 500; i++) {
+            String s = randomString(random, alphabet);
+            StringBuilder sb = new StringBuilder();
+            CanonicalQueryString.encode(sb, s);
+
+            assertThat(sb.toString()).isEqualTo(ESCAPER.escape(s));
+        }
+    }
+
+    @Test
+    void matchesSortedEscapedPairs() {
+        Random random = new Random(7);
+        String alphabet = "aAbB01-_.~ +æ";
+        for (int i = 0; i < 200; i++) {
+            HttpUrl.Builder builder = HttpUrl.parse("https://example.amazonaws.com/").newBuilder();
+            List<String[]> pairs = new ArrayList<>();
+            for (int j = 0; j < 1 + random.nextInt(20); j++) {
+                String name = randomString(random, alphabet);
+                String value = randomString(random, alphabet);
+                builder.addQueryParameter(name, value);
+                pairs.add(new String[]{ESCAPER.escape(name), ESCAPER.escape(value)});
+            }
+            pairs.sort((a, b) -> {
+                int byName = a[0].compareTo(b[0]);
+                return byName != 0 ? byName : a[1].compareTo(b[1]);
+            });
+            StringBuilder expected = new StringBuilder();
+            for (String[] pair : pairs) {
+                if (expected.length() > 0) {
+                    expected.append('&');
+                }
+                expected.append(pair[0]).append('=').append(pair[1]);
+            }
+
+            assertThat(CanonicalQueryString.of(builder.build())).isEqualTo(expected.toString());
+        }
+    }
+
+    @Test
+    void addsExtraParametersInSortOrder() {
+        HttpUrl url = HttpUrl.parse("https://example.com/?b=2&Z=last");
+
+        assertThat(CanonicalQueryString.of(url, "a", "x/y", "X-Amz-Date", "20130524T000000Z"))
+                .isEqualTo("X-Amz-Date=20130524T000000Z&Z=last&a=x%2Fy&b=2");
+    }
+
+    private static String randomString(Random random, String alphabet) {
+        int length = 1 + random.nextInt(8);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return sb.toString();
+    }
+}
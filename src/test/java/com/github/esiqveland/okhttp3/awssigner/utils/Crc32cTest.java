@@ -0,0 +1,64 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Crc32cTest {
+
+    private static long crc32c(byte[] data) {
+        Crc32c crc = new Crc32c();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    @Test
+    void matchesCheckValue() {
+        assertThat(crc32c("123456789".getBytes(StandardCharsets.US_ASCII))).isEqualTo(0xE3069283L);
+    }
+
+    // test vectors from RFC 3720, appendix B.4
+    @Test
+    void matchesRfc3720Vectors() {
+        byte[] zeros = new byte[32];
+        byte[] ones = new byte[32];
+        Arrays.fill(ones, (byte) 0xFF);
+        byte[] ascending = new byte[32];
+        byte[] descending = new byte[32];
+        for (int i = 0; i < 32; i++) {
+            ascending[i] = (byte) i;
+            descending[i] = (byte) (31 - i);
+        }
+
+        assertThat(crc32c(zeros)).isEqualTo(0x8A9136AAL);
+        assertThat(crc32c(ones)).isEqualTo(0x62A8AB43L);
+        assertThat(crc32c(ascending)).isEqualTo(0x46DD794EL);
+        assertThat(crc32c(descending)).isEqualTo(0x113FDB5CL);
+    }
+
+    @Test
+    void updatesInPiecesLikeAtOnce() {
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 31 + 7);
+        }
+        long expected = crc32c(data);
+
+        for (int split = 0; split <= 20; split++) {
+            Crc32c crc = new Crc32c();
+            crc.update(data, 0, split);
+            crc.update(data[split]);
+            crc.update(data, split + 1, data.length - split - 1);
+            assertThat(crc.getValue()).isEqualTo(expected);
+        }
+
+        Crc32c crc = new Crc32c();
+        crc.update(data, 0, 10);
+        crc.reset();
+        crc.update(data, 0, data.length);
+        assertThat(crc.getValue()).isEqualTo(expected);
+    }
+}
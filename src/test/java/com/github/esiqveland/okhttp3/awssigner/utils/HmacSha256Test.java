@@ -0,0 +1,51 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class HmacSha256Test {
+    private static final byte[] SIGNING_KEY = base16().lowerCase()
+            .decode("c4afb1cc5771d871763a393e44b703571b55cc28424d1a5e86da6ed3c154a4b9");
+
+    private static final String STRING_TO_SIGN = "AWS4-HMAC-SHA256\n" +
+            "20150830T123600Z\n" +
+            "20150830/us-east-1/iam/aws4_request\n" +
+            "f536975d06c0309214f805bb90ccff089219ecd68b2577efef23edd43b7e1a59";
+
+    private static final String EXPECTED_SIGNATURE = "5d672d79c15b13162d9279b0855cfba6789a8edb4c82c400e06b5924a6f2b5d7";
+
+    @Test
+    public void signsLikeAFreshMac() {
+        HmacSha256 mac = HmacSha256.forKey(SIGNING_KEY);
+
+        assertThat(base16().lowerCase().encode(mac.sign(STRING_TO_SIGN))).isEqualTo(EXPECTED_SIGNATURE);
+        // signing again must not be affected by the previous call
+        assertThat(base16().lowerCase().encode(mac.sign(STRING_TO_SIGN))).isEqualTo(EXPECTED_SIGNATURE);
+        assertThat(mac.sign(STRING_TO_SIGN)).isEqualTo(Tools.HmacSHA256(SIGNING_KEY, STRING_TO_SIGN));
+    }
+
+    @Test
+    public void isSafeToShareBetweenThreads() throws Exception {
+        HmacSha256 mac = HmacSha256.forKey(SIGNING_KEY);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                results.add(executor.submit(() -> base16().lowerCase().encode(mac.sign(STRING_TO_SIGN))));
+            }
+            for (Future<String> result : results) {
+                assertThat(result.get()).isEqualTo(EXPECTED_SIGNATURE);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
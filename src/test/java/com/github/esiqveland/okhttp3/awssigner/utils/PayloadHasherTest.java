@@ -0,0 +1,85 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import static com.google.common.io.BaseEncoding.base16;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PayloadHasherTest {
+
+    @Test
+    public void emptyHashForMissingBody() throws IOException {
+        assertThat(PayloadHasher.sha256Hex(null))
+                .isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+    }
+
+    @Test
+    public void hashesKnownLengthBody() throws IOException {
+        RequestBody body = RequestBody.create(null, "Param1=value1");
+
+        assertThat(PayloadHasher.sha256Hex(body))
+                .isEqualTo("9095672bbd1f56dfc5b65f3e153adc8731a4a654192329106275f4c7b24d0b6e");
+    }
+
+    @Test
+    public void hashesLargeStreamedBody() throws Exception {
+        byte[] chunk = new byte[64 * 1024];
+        Arrays.fill(chunk, (byte) 'a');
+        int chunks = 256;
+
+        MessageDigest expected = MessageDigest.getInstance("SHA-256");
+        for (int i = 0; i < chunks; i++) {
+            expected.update(chunk);
+        }
+
+        RequestBody body = new ChunkedBody(chunk, chunks, (long) chunk.length * chunks);
+
+        assertThat(PayloadHasher.sha256Hex(body)).isEqualTo(base16().lowerCase().encode(expected.digest()));
+    }
+
+    @Test
+    public void hashesUnknownLengthBody() throws Exception {
+        byte[] chunk = "abcdefgh".getBytes("UTF-8");
+        RequestBody body = new ChunkedBody(chunk, 3, -1);
+
+        assertThat(PayloadHasher.sha256Hex(body))
+                .isEqualTo(base16().lowerCase().encode(MessageDigest.getInstance("SHA-256")
+                        .digest("abcdefghabcdefghabcdefgh".getBytes("UTF-8"))));
+    }
+
+    private static class ChunkedBody extends RequestBody {
+        private final byte[] chunk;
+        private final int chunks;
+        private final long contentLength;
+
+        ChunkedBody(byte[] chunk, int chunks, long contentLength) {
+            this.chunk = chunk;
+            this.chunks = chunks;
+            this.contentLength = contentLength;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return null;
+        }
+
+        @Override
+        public long contentLength() {
+            return contentLength;
+        }
+
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            for (int i = 0; i < chunks; i++) {
+                sink.write(chunk);
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.github.esiqveland.okhttp3.awssigner.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Sha256WriterTest {
+
+    @Test
+    void hashesLikeMessageDigest() throws Exception {
+        String[] inputs = {
+                "",
+                "GET\n/\n\nhost:example.amazonaws.com\n",
+                "æøå ሴ 😀 done",
+                "unpaired \uD800 surrogate",
+                repeat("0123456789abcdef", 100) + "ሴ" + repeat("x", 300),
+        };
+        for (String input : inputs) {
+            Sha256Writer writer = new Sha256Writer(false);
+            // write in pieces, to cross the scratch buffer at different offsets
+            int start = 0;
+            while (start < input.length()) {
+                int end = Math.min(input.length(), start + 7);
+                if (Character.isHighSurrogate(input.charAt(end - 1)) && end < input.length()) {
+                    end++;
+                }
+                writer.append(input.substring(start, end));
+                start = end;
+            }
+
+            byte[] expected = MessageDigest.getInstance("SHA-256").digest(input.getBytes(StandardCharsets.UTF_8));
+            assertThat(writer.digest()).isEqualTo(expected);
+        }
+    }
+
+    @Test
+    void keepsTextWhenAsked() {
+        Sha256Writer writer = new Sha256Writer(true)
+                .append("GET")
+                .append('\n')
+                .append("/");
+
+        assertThat(writer.text()).isEqualTo("GET\n/");
+        assertThat(writer.hexDigest()).isEqualTo(Utils.hexHash("GET\n/"));
+    }
+
+    @Test
+    void dropsTextByDefault() {
+        Sha256Writer writer = new Sha256Writer(false).append("GET");
+
+        assertThat(writer.text()).isNull();
+    }
+
+    private static String repeat(String s, int times) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            sb.append(s);
+        }
+        return sb.toString();
+    }
+}
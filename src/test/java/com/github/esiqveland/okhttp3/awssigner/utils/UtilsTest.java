@@ -57,4 +57,15 @@ class UtilsTest {
         assertThat(Utils.lowerCase("HostParam")).isEqualTo("hostparam");
     }
 
-}
\ No newline at end of file
+    @Test
+    void hex() {
+        assertThat(Utils.hex(new byte[0])).isEqualTo("");
+        assertThat(Utils.hex(new byte[]{0x00, 0x0f, (byte) 0xa0, (byte) 0xff})).isEqualTo("000fa0ff");
+    }
+
+    @Test
+    void hexHash() {
+        assertThat(Utils.hexHash("")).isEqualTo("e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855");
+    }
+
+}